@@ -0,0 +1,340 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.solibri.smc.api.model.Component;
+
+/**
+ * A persistent cache of evaluated clash pairs. An entry is keyed by the GUIDs
+ * of the two components and is valid only as long as the geometry
+ * fingerprints of both components are unchanged, so after a discipline model
+ * has been updated only the pairs involving changed or new components are
+ * evaluated again.
+ *
+ * The cache can be stored in a local file, so that it survives restarts of
+ * the application. The file can be shared by several rules and models: at the
+ * end of each run the pairs met during the run are merged into the entries
+ * already in the file. The pairs of the current run are always kept, and the
+ * older entries are dropped least recently used first once the cache grows
+ * over its limit, which is sized from the pair count of the run.
+ */
+final class ClashCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ClashCache.class);
+
+	private static final int FILE_FORMAT_MAGIC = 0x434c4348;
+
+	private static final int FILE_FORMAT_VERSION = 3;
+
+	/**
+	 * The number of entries kept in the cache even if the runs are smaller.
+	 */
+	private static final int MIN_ENTRY_LIMIT = 200_000;
+
+	/**
+	 * The number of runs of the current size whose entries are kept in the
+	 * cache. The entries of the other rules and models checked with the same
+	 * cache file are kept up to this limit.
+	 */
+	private static final int RETAINED_RUN_COUNT = 4;
+
+
+	/**
+	 * Serializes the merging and writing of the cache files, so that the rules
+	 * finishing at the same time do not drop each other's entries.
+	 */
+	private static final Object FILE_LOCK = new Object();
+
+	/**
+	 * The cache file, or null if the cache is kept only in memory.
+	 */
+	private final Path file;
+
+	/**
+	 * The entries loaded from the file or stored in the previous runs.
+	 */
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * The entries met during the current run.
+	 */
+	private final Map<String, Entry> currentEntries = new ConcurrentHashMap<>();
+
+	/**
+	 * The fingerprints of the components in the current run, shared with the
+	 * snapshot of the run.
+	 */
+	private volatile ComponentFingerprints fingerprints = new ComponentFingerprints();
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	/**
+	 * The time the current run started, stored as the last use time of the
+	 * entries met during the run.
+	 */
+	private volatile long runStartTime;
+
+	private ClashCache(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Loads the cache from the given file. If the file does not exist yet, an
+	 * empty cache that will be written to the file is returned. A file that
+	 * is not a valid cache file is ignored, and it is replaced when the cache
+	 * is saved.
+	 *
+	 * @param file the cache file, or null to keep the cache only in memory
+	 * @return the cache
+	 * @throws IOException if the file exists but can not be read
+	 */
+	static ClashCache load(Path file) throws IOException {
+		if (file == null) {
+			return new ClashCache(null);
+		}
+		ClashCache cache = new ClashCache(file);
+		cache.entries.putAll(readEntries(file));
+		return cache;
+	}
+
+	/**
+	 * Reads the entries of the given cache file.
+	 *
+	 * @param file the cache file
+	 * @return the entries, or an empty map if the file does not exist or is
+	 *         not a valid cache file
+	 * @throws IOException if the file exists but can not be read
+	 */
+	private static Map<String, Entry> readEntries(Path file) throws IOException {
+		Map<String, Entry> fileEntries = new HashMap<>();
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (input.readInt() != FILE_FORMAT_MAGIC || input.readInt() != FILE_FORMAT_VERSION) {
+				LOG.warn("Ignoring the clash cache file {} written in an unknown format", file);
+				return fileEntries;
+			}
+			int entryCount = input.readInt();
+			if (entryCount < 0) {
+				throw new EOFException();
+			}
+			for (int i = 0; i < entryCount; i++) {
+				String pairKey = input.readUTF();
+				long firstFingerprint = input.readLong();
+				long secondFingerprint = input.readLong();
+				boolean exact = input.readBoolean();
+				double volumeUpperBound = input.readDouble();
+				long lastUseTime = input.readLong();
+				int volumeCount = input.readInt();
+				if (volumeCount < 0) {
+					throw new EOFException();
+				}
+				double[] volumes = new double[volumeCount];
+				for (int j = 0; j < volumes.length; j++) {
+					volumes[j] = input.readDouble();
+				}
+				fileEntries.put(pairKey,
+					new Entry(firstFingerprint, secondFingerprint, volumes, volumeUpperBound, exact, lastUseTime));
+			}
+		} catch (NoSuchFileException e) {
+			// Nothing has been cached yet.
+		} catch (EOFException | UTFDataFormatException e) {
+			/*
+			 * The file has been truncated or overwritten. It is not an error
+			 * worth repeating on every run, since the file is replaced with a
+			 * valid one when the cache is saved.
+			 */
+			LOG.warn("Ignoring the corrupt clash cache file {}", file);
+			fileEntries.clear();
+		}
+		return fileEntries;
+	}
+
+	/**
+	 * Prepares the cache for a new checking run. The component fingerprints
+	 * are computed again, since the geometry may have changed between runs.
+	 *
+	 * @param runFingerprints the fingerprints of the components in the run
+	 */
+	void beginRun(ComponentFingerprints runFingerprints) {
+		entries.putAll(currentEntries);
+		currentEntries.clear();
+		fingerprints = runFingerprints;
+		hitCount.reset();
+		missCount.reset();
+		runStartTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns the evaluation of the given pair from the cache, or evaluates
+	 * the pair and caches the evaluation if the cache has no valid entry for
+	 * it.
+	 *
+	 * @param source the source component
+	 * @param target the target component
+	 * @param allowedTolerance the volume below which intersections are ignored
+	 * @return the evaluation of the pair
+	 */
+	ClashEvaluation evaluate(Component source, Component target, double allowedTolerance) {
+		String pairKey = ClashPairRegistry.pairKey(source, target);
+		boolean sourceFirst = source.getGUID().compareTo(target.getGUID()) <= 0;
+		ComponentFingerprints currentFingerprints = fingerprints;
+		long firstFingerprint = currentFingerprints.get(sourceFirst ? source : target);
+		long secondFingerprint = currentFingerprints.get(sourceFirst ? target : source);
+
+		Entry entry = entries.get(pairKey);
+		if (entry != null && entry.firstFingerprint == firstFingerprint
+			&& entry.secondFingerprint == secondFingerprint
+			&& (entry.exact || entry.volumeUpperBound < allowedTolerance)) {
+			hitCount.increment();
+			currentEntries.put(pairKey, entry.usedAt(runStartTime));
+			return new ClashEvaluation(source, target, entry.volumes, entry.volumeUpperBound, entry.exact);
+		}
+
+		missCount.increment();
+		ClashEvaluation evaluation = ClashEvaluation.evaluate(source, target, allowedTolerance);
+		currentEntries.put(pairKey, new Entry(firstFingerprint, secondFingerprint, evaluation.intersectionVolumes,
+			evaluation.volumeUpperBound, evaluation.exact, runStartTime));
+		return evaluation;
+	}
+
+	/**
+	 * Merges the pairs met during the current run into the entries of the
+	 * cache file and writes the file again. The entries written by other
+	 * rules since the file was loaded are kept. The pairs of the current run
+	 * are never dropped, and if there are too many older entries, the least
+	 * recently used ones are dropped. The file is first written to a temporary
+	 * file and then moved in place, so that an interrupted write does not
+	 * corrupt the cache.
+	 *
+	 * @throws IOException if the file can not be written
+	 */
+	void save() throws IOException {
+		synchronized (FILE_LOCK) {
+			Map<String, Entry> olderEntries = file != null ? readEntries(file) : new HashMap<>();
+			entries.forEach((pairKey, entry) -> olderEntries.merge(pairKey, entry,
+				(fileEntry, ownEntry) -> fileEntry.lastUseTime > ownEntry.lastUseTime ? fileEntry : ownEntry));
+			olderEntries.keySet().removeAll(currentEntries.keySet());
+
+			List<Map.Entry<String, Entry>> keptOlderEntries = new ArrayList<>(olderEntries.entrySet());
+			int entryLimit = Math.max(MIN_ENTRY_LIMIT, RETAINED_RUN_COUNT * currentEntries.size());
+			int olderEntryLimit = entryLimit - currentEntries.size();
+			if (keptOlderEntries.size() > olderEntryLimit) {
+				keptOlderEntries.sort(Comparator.comparingLong(
+					(Map.Entry<String, Entry> mapEntry) -> mapEntry.getValue().lastUseTime).reversed());
+				keptOlderEntries = keptOlderEntries.subList(0, olderEntryLimit);
+			}
+			List<Map.Entry<String, Entry>> keptEntries = new ArrayList<>(currentEntries.entrySet());
+			keptEntries.addAll(keptOlderEntries);
+
+			if (file != null) {
+				writeEntries(file, keptEntries);
+			}
+
+			/*
+			 * Keep the same entries in memory, so that the pairs cached by the
+			 * other rules are found in the next run as well.
+			 */
+			entries.clear();
+			keptEntries.forEach(mapEntry -> entries.put(mapEntry.getKey(), mapEntry.getValue()));
+		}
+	}
+
+	private static void writeEntries(Path file, List<Map.Entry<String, Entry>> fileEntries) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temporaryFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try (DataOutputStream output = new DataOutputStream(
+			new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+			output.writeInt(FILE_FORMAT_MAGIC);
+			output.writeInt(FILE_FORMAT_VERSION);
+			output.writeInt(fileEntries.size());
+			for (Map.Entry<String, Entry> mapEntry : fileEntries) {
+				Entry entry = mapEntry.getValue();
+				output.writeUTF(mapEntry.getKey());
+				output.writeLong(entry.firstFingerprint);
+				output.writeLong(entry.secondFingerprint);
+				output.writeBoolean(entry.exact);
+				output.writeDouble(entry.volumeUpperBound);
+				output.writeLong(entry.lastUseTime);
+				output.writeInt(entry.volumes.length);
+				for (double volume : entry.volumes) {
+					output.writeDouble(volume);
+				}
+			}
+		}
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Returns the number of pairs taken from the cache during the current run.
+	 *
+	 * @return the number of cache hits
+	 */
+	long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * Returns the number of pairs evaluated during the current run.
+	 *
+	 * @return the number of cache misses
+	 */
+	long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * A cached evaluation. The fingerprints are in the same order as the GUIDs
+	 * in the pair key. The last use time tells which entries are dropped first
+	 * when the cache file grows too large.
+	 */
+	private static final class Entry {
+
+		final long firstFingerprint;
+
+		final long secondFingerprint;
+
+		final double[] volumes;
+
+		final double volumeUpperBound;
+
+		final boolean exact;
+
+		final long lastUseTime;
+
+		Entry(long firstFingerprint, long secondFingerprint, double[] volumes, double volumeUpperBound,
+			boolean exact, long lastUseTime) {
+			this.firstFingerprint = firstFingerprint;
+			this.secondFingerprint = secondFingerprint;
+			this.volumes = volumes;
+			this.volumeUpperBound = volumeUpperBound;
+			this.exact = exact;
+			this.lastUseTime = lastUseTime;
+		}
+
+		Entry usedAt(long useTime) {
+			return new Entry(firstFingerprint, secondFingerprint, volumes, volumeUpperBound, exact, useTime);
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.solibri.geometry.primitive3d.AABB3d;
+import com.solibri.smc.api.model.Component;
+
+/**
+ * Groups clashing component pairs into clusters. Two clashes belong to the
+ * same cluster if they involve the same pair of component types and their
+ * centroids are within the clustering radius of each other, directly or
+ * through other clashes of the cluster.
+ *
+ * The centroid of a clash is the center of the overlap of the bounding boxes
+ * of the two components. The clashes are put into a uniform grid with the
+ * radius as the cell size, so that only the clashes in the neighbouring cells
+ * are compared, and the clusters are formed with a union-find structure.
+ */
+final class ClashClusters {
+
+	/**
+	 * The smallest grid cell size, used when the radius is zero.
+	 */
+	private static final double MIN_CELL_SIZE = 0.001;
+
+	/**
+	 * The number of bits used for each cell coordinate in a cell key.
+	 */
+	private static final int CELL_KEY_BITS = 21;
+
+	private static final long CELL_KEY_MASK = (1L << CELL_KEY_BITS) - 1;
+
+	private ClashClusters() {
+	}
+
+	/**
+	 * A group of clashing component pairs near each other.
+	 */
+	static final class Cluster {
+
+		/**
+		 * The clashing pairs of the cluster.
+		 */
+		final List<ClashEvaluation> evaluations = new ArrayList<>();
+
+		/**
+		 * The number of clashes in the cluster. A pair can have several
+		 * intersections that reach the tolerance.
+		 */
+		int clashCount;
+
+		/**
+		 * Returns the source component the result of the cluster is reported
+		 * for. The source with the smallest GUID is used, so that the same
+		 * component is chosen on every run.
+		 *
+		 * @return the source component of the cluster
+		 */
+		Component getRepresentative() {
+			Component representative = evaluations.get(0).source;
+			for (ClashEvaluation evaluation : evaluations) {
+				if (evaluation.source.getGUID().compareTo(representative.getGUID()) < 0) {
+					representative = evaluation.source;
+				}
+			}
+			return representative;
+		}
+
+		/**
+		 * Returns all the components involved in the clashes of the cluster.
+		 *
+		 * @return the involved components
+		 */
+		Set<Component> getComponents() {
+			Set<Component> components = new LinkedHashSet<>();
+			for (ClashEvaluation evaluation : evaluations) {
+				components.add(evaluation.source);
+				components.add(evaluation.target);
+			}
+			return components;
+		}
+	}
+
+	/**
+	 * Clusters the clashing pairs of the given evaluations and returns the
+	 * clusters grouped by their representative source components. The
+	 * evaluations without any intersection reaching the tolerance are ignored.
+	 *
+	 * @param evaluations the evaluated component pairs
+	 * @param allowedTolerance the volume below which intersections are ignored
+	 * @param radius the largest distance between clash centroids in a cluster
+	 * @return the clusters of each representative source component
+	 */
+	static Map<Component, List<Cluster>> bySource(Collection<ClashEvaluation> evaluations, double allowedTolerance,
+		double radius) {
+		/*
+		 * Collect the clashing pairs and their clash counts.
+		 */
+		List<ClashEvaluation> clashes = new ArrayList<>();
+		List<Integer> clashCounts = new ArrayList<>();
+		for (ClashEvaluation evaluation : evaluations) {
+			int count = 0;
+			for (double volume : evaluation.intersectionVolumes) {
+				if (volume >= allowedTolerance) {
+					count++;
+				}
+			}
+			if (count > 0) {
+				clashes.add(evaluation);
+				clashCounts.add(count);
+			}
+		}
+
+		int size = clashes.size();
+		String[] typePairs = new String[size];
+		double[][] centroids = new double[size][];
+		for (int i = 0; i < size; i++) {
+			typePairs[i] = typePair(clashes.get(i));
+			centroids[i] = centroid(clashes.get(i));
+		}
+
+		/*
+		 * Put each clash into a grid cell and union it with the clashes of the
+		 * same type pair in the neighbouring cells that are within the radius.
+		 */
+		double cellSize = Math.max(radius, MIN_CELL_SIZE);
+		double radiusSquared = radius * radius;
+		int[] parents = new int[size];
+		int[] sizes = new int[size];
+		Map<String, Map<Long, List<Integer>>> grids = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			parents[i] = i;
+			sizes[i] = 1;
+			Map<Long, List<Integer>> grid = grids.computeIfAbsent(typePairs[i], t -> new HashMap<>());
+			long cellX = (long) Math.floor(centroids[i][0] / cellSize);
+			long cellY = (long) Math.floor(centroids[i][1] / cellSize);
+			long cellZ = (long) Math.floor(centroids[i][2] / cellSize);
+			for (long dx = -1; dx <= 1; dx++) {
+				for (long dy = -1; dy <= 1; dy++) {
+					for (long dz = -1; dz <= 1; dz++) {
+						List<Integer> cell = grid.get(cellKey(cellX + dx, cellY + dy, cellZ + dz));
+						if (cell == null) {
+							continue;
+						}
+						for (int j : cell) {
+							if (distanceSquared(centroids[i], centroids[j]) <= radiusSquared) {
+								union(parents, sizes, i, j);
+							}
+						}
+					}
+				}
+			}
+			grid.computeIfAbsent(cellKey(cellX, cellY, cellZ), k -> new ArrayList<>()).add(i);
+		}
+
+		/*
+		 * Collect the clusters and group them by their representatives.
+		 */
+		Map<Integer, Cluster> clustersByRoot = new HashMap<>();
+		List<Cluster> clusters = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			Cluster cluster = clustersByRoot.get(find(parents, i));
+			if (cluster == null) {
+				cluster = new Cluster();
+				clustersByRoot.put(find(parents, i), cluster);
+				clusters.add(cluster);
+			}
+			cluster.evaluations.add(clashes.get(i));
+			cluster.clashCount += clashCounts.get(i);
+		}
+		Map<Component, List<Cluster>> clustersBySource = new HashMap<>();
+		for (Cluster cluster : clusters) {
+			clustersBySource.computeIfAbsent(cluster.getRepresentative(), c -> new ArrayList<>()).add(cluster);
+		}
+		return clustersBySource;
+	}
+
+	/**
+	 * Returns the key of the unordered pair of the component types of a clash.
+	 */
+	private static String typePair(ClashEvaluation evaluation) {
+		String sourceType = String.valueOf(evaluation.source.getComponentType());
+		String targetType = String.valueOf(evaluation.target.getComponentType());
+		return sourceType.compareTo(targetType) <= 0
+			? sourceType + ":" + targetType
+			: targetType + ":" + sourceType;
+	}
+
+	/**
+	 * Returns the center of the overlap of the bounding boxes of a clash.
+	 */
+	private static double[] centroid(ClashEvaluation evaluation) {
+		AABB3d a = evaluation.source.getBoundingBox();
+		AABB3d b = evaluation.target.getBoundingBox();
+		return new double[] {
+			0.5 * (Math.max(a.getLowerBound().getX(), b.getLowerBound().getX())
+				+ Math.min(a.getUpperBound().getX(), b.getUpperBound().getX())),
+			0.5 * (Math.max(a.getLowerBound().getY(), b.getLowerBound().getY())
+				+ Math.min(a.getUpperBound().getY(), b.getUpperBound().getY())),
+			0.5 * (Math.max(a.getLowerBound().getZ(), b.getLowerBound().getZ())
+				+ Math.min(a.getUpperBound().getZ(), b.getUpperBound().getZ())) };
+	}
+
+	private static long cellKey(long x, long y, long z) {
+		return (x & CELL_KEY_MASK) << (2 * CELL_KEY_BITS) | (y & CELL_KEY_MASK) << CELL_KEY_BITS | z & CELL_KEY_MASK;
+	}
+
+	private static double distanceSquared(double[] a, double[] b) {
+		double dx = a[0] - b[0];
+		double dy = a[1] - b[1];
+		double dz = a[2] - b[2];
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private static int find(int[] parents, int i) {
+		while (parents[i] != i) {
+			parents[i] = parents[parents[i]];
+			i = parents[i];
+		}
+		return i;
+	}
+
+	private static void union(int[] parents, int[] sizes, int i, int j) {
+		int rootI = find(parents, i);
+		int rootJ = find(parents, j);
+		if (rootI == rootJ) {
+			return;
+		}
+		if (sizes[rootI] < sizes[rootJ]) {
+			int swap = rootI;
+			rootI = rootJ;
+			rootJ = swap;
+		}
+		parents[rootJ] = rootI;
+		sizes[rootI] += sizes[rootJ];
+	}
+}
@@ -1,20 +1,42 @@
 package com.solibri.smc.api.examples.beginner;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
-import com.solibri.smc.api.SMC;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.solibri.smc.api.checking.BooleanParameter;
+import com.solibri.smc.api.checking.ComponentSelector;
+import com.solibri.smc.api.checking.ConcurrentRule;
 import com.solibri.smc.api.checking.DoubleParameter;
+import com.solibri.smc.api.checking.EnumerationParameter;
 import com.solibri.smc.api.checking.FilterParameter;
-import com.solibri.smc.api.checking.OneByOneRule;
+import com.solibri.smc.api.checking.PreCheckResult;
 import com.solibri.smc.api.checking.Result;
 import com.solibri.smc.api.checking.ResultFactory;
 import com.solibri.smc.api.checking.RuleParameters;
+import com.solibri.smc.api.checking.StringParameter;
 import com.solibri.smc.api.filter.AABBIntersectionFilter;
 import com.solibri.smc.api.filter.ComponentFilter;
-import com.solibri.smc.api.intersection.Intersection;
 import com.solibri.smc.api.model.Component;
+import com.solibri.smc.api.model.Model;
 import com.solibri.smc.api.model.PropertyType;
 import com.solibri.smc.api.ui.UIContainer;
 
@@ -22,8 +44,15 @@ import com.solibri.smc.api.ui.UIContainer;
  * An example rule that checks all clashes between components. A tolerance
  * parameter is included for specifying how much volume the clash must have to
  * be considered an issue.
+ *
+ * The rule is a ConcurrentRule, so the source components are checked in
+ * parallel. In addition, the candidate targets of a single source component
+ * are split into fork/join tasks so that a component with a large number of
+ * neighbours does not keep one thread busy while the others are idle.
  */
-public final class ClashDetectionRule extends OneByOneRule {
+public final class ClashDetectionRule extends ConcurrentRule {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
 	/**
 	 * Constant strings are created to be used when creating different rule
@@ -34,6 +63,28 @@ public final class ClashDetectionRule extends OneByOneRule {
 
 	private static final String ALLOWED_TOLERANCE_PARAMETER_ID = "rpAllowedTolerance";
 
+	private static final String BROADPHASE_PARAMETER_ID = "rpBroadphase";
+
+	static final String BROADPHASE_MODEL_QUERY = "rpBroadphase.MODEL_QUERY";
+
+	static final String BROADPHASE_SWEEP_AND_PRUNE = "rpBroadphase.SWEEP_AND_PRUNE";
+
+	private static final String USE_CLASH_CACHE_PARAMETER_ID = "rpUseClashCache";
+
+	private static final String CLASH_CACHE_FILE_PARAMETER_ID = "rpClashCacheFile";
+
+	private static final String CLASH_MODE_PARAMETER_ID = "rpClashMode";
+
+	static final String CLASH_MODE_HARD = "rpClashMode.HARD";
+
+	static final String CLASH_MODE_CLEARANCE = "rpClashMode.CLEARANCE";
+
+	private static final String CLEARANCE_PARAMETER_ID = "rpClearance";
+
+	private static final String CLUSTER_CLASHES_PARAMETER_ID = "rpClusterClashes";
+
+	private static final String CLUSTER_RADIUS_PARAMETER_ID = "rpClusterRadius";
+
 	/**
 	 * Retrieve the rule parameters handler, used to define parameters for
 	 * this rule.
@@ -53,59 +104,520 @@ public final class ClashDetectionRule extends OneByOneRule {
 
 	final DoubleParameter rpAllowedTolerance = params.createDouble(ALLOWED_TOLERANCE_PARAMETER_ID, PropertyType.VOLUME);
 
+	/**
+	 * An EnumerationParameter is created to select how the clash candidates
+	 * are found. The model query searches the candidates separately for each
+	 * source component, while the sweep and prune finds the candidates of all
+	 * the source components at once before the checking starts.
+	 */
+	final EnumerationParameter rpBroadphase = params.createEnumeration(BROADPHASE_PARAMETER_ID,
+		Arrays.asList(BROADPHASE_MODEL_QUERY, BROADPHASE_SWEEP_AND_PRUNE));
+
+	/**
+	 * An EnumerationParameter is created to select between hard clashes and
+	 * clearance checking. In the clearance mode, the pairs whose meshes come
+	 * closer to each other than the clearance length are reported.
+	 */
+	final EnumerationParameter rpClashMode = params.createEnumeration(CLASH_MODE_PARAMETER_ID,
+		Arrays.asList(CLASH_MODE_HARD, CLASH_MODE_CLEARANCE));
+
+	final DoubleParameter rpClearance = params.createDouble(CLEARANCE_PARAMETER_ID, PropertyType.LENGTH);
+
+	/**
+	 * True if the current run checks the clearance instead of hard clashes.
+	 */
+	private volatile boolean clearanceMode;
+
+	/**
+	 * The triangle hierarchies of the components built during the current
+	 * run in the clearance mode. They are released once every source
+	 * component has been checked.
+	 */
+	private volatile Map<Component, TriangleBoundingVolumeHierarchy> hierarchies = new ConcurrentHashMap<>();
+
+	/**
+	 * The model the targets of the current run are taken from. Both the sweep
+	 * and prune broadphase and the model queries use it, so that they check
+	 * the same targets.
+	 */
+	private volatile Model targetModel;
+
+	/**
+	 * The sweep and prune broadphase of the current checking run, or null if
+	 * the candidates are searched with model queries.
+	 */
+	private volatile SweepAndPruneBroadphase broadphase;
+
+	/**
+	 * A BooleanParameter is created to enable the persistent clash cache. When
+	 * enabled, only the pairs involving changed or new components are
+	 * evaluated again.
+	 */
+	final BooleanParameter rpUseClashCache = params.createBoolean(USE_CLASH_CACHE_PARAMETER_ID);
+
+	/**
+	 * A StringParameter is created for the file where the clash cache is kept
+	 * between sessions. The file can be shared by several rules, which merge
+	 * the pairs of their runs into it. If no file is given, the cache is kept
+	 * only in memory.
+	 */
+	final StringParameter rpClashCacheFile = params.createString(CLASH_CACHE_FILE_PARAMETER_ID);
+
+	/**
+	 * A BooleanParameter is created to group the clashes into clusters, and a
+	 * DoubleParameter states how close the clashes of a cluster must be to
+	 * each other. A cluster is reported as one result that lists all the
+	 * components involved.
+	 */
+	final BooleanParameter rpClusterClashes = params.createBoolean(CLUSTER_CLASHES_PARAMETER_ID);
+
+	final DoubleParameter rpClusterRadius = params.createDouble(CLUSTER_RADIUS_PARAMETER_ID, PropertyType.LENGTH);
+
+	/**
+	 * The clusters of the current run grouped by the source components they
+	 * are reported for, or null if the clashes are not clustered.
+	 */
+	private volatile Map<Component, List<ClashClusters.Cluster>> clusters;
+
+	/**
+	 * The clash cache loaded from the cache file. It is kept in memory between
+	 * runs once it has been loaded, until another cache file is selected.
+	 */
+	private ClashCache loadedClashCache;
+
+	/**
+	 * The file the loaded clash cache was loaded from, or null if it is kept
+	 * only in memory.
+	 */
+	private Path loadedClashCacheFile;
+
+	/**
+	 * The clash cache used in the current run, or null if caching is disabled.
+	 */
+	private volatile ClashCache clashCache;
+
+	/**
+	 * The raw clash evaluations of the current run, or of the previous run
+	 * when they are reused.
+	 */
+	private volatile ClashRunSnapshot snapshot;
+
+	/**
+	 * True if the current run reuses the evaluations of the previous run
+	 * because only the tolerance has changed.
+	 */
+	private volatile boolean reuseSnapshot;
+
+	/**
+	 * The number of source components not yet checked in the current run.
+	 */
+	private final AtomicInteger uncheckedSourceCount = new AtomicInteger();
+
+	/**
+	 * The number of clashes found in the current run.
+	 */
+	private final AtomicLong clashCount = new AtomicLong();
+
+	/**
+	 * The busy time of the threads evaluating clashes in the current run.
+	 */
+	private volatile ThreadLoadMonitor loadMonitor = new ThreadLoadMonitor();
+
+	/**
+	 * The source components of the current run. A target that is also a
+	 * source can be met again as the source of the reversed pair.
+	 */
+	private volatile Set<Component> sourceComponents = Collections.emptySet();
+
+	/**
+	 * The unordered component pairs already evaluated in the current run.
+	 */
+	private volatile ClashPairRegistry pairRegistry = new ClashPairRegistry();
+
 	/**
 	 * Add the UI definition from ClashDetectionRuleUIDefinition class.
 	 */
 	private final ClashDetectionRuleUIDefinition uiDefinition = new ClashDetectionRuleUIDefinition(this);
 
 	@Override
-	public Collection<Result> check(Component component, ResultFactory resultFactory) {
+	public PreCheckResult preCheck(ComponentSelector components) {
+		Set<Component> sources = components.select(rpComponentFilter.getValue());
+		sourceComponents = sources;
+		pairRegistry = new ClashPairRegistry();
+		loadMonitor = new ThreadLoadMonitor();
+		uncheckedSourceCount.set(sources.size());
+		clashCount.set(0);
+
+		targetModel = components.getTargetModel();
+		Collection<Component> targets = targetModel.getComponents(rpComponentFilter2.getValue());
+		hierarchies = new ConcurrentHashMap<>();
+		clearanceMode = CLASH_MODE_CLEARANCE.equals(rpClashMode.getValue());
+		if (clearanceMode) {
+			/*
+			 * The clearance check does not compute intersection volumes, so the
+			 * volume based snapshot, cache and clusters are not used. The
+			 * bounding boxes are paired if they are within the clearance of
+			 * each other.
+			 */
+			snapshot = null;
+			reuseSnapshot = false;
+			clashCache = null;
+			clusters = null;
+			broadphase = BROADPHASE_SWEEP_AND_PRUNE.equals(rpBroadphase.getValue())
+				? SweepAndPruneBroadphase.of(sources, targets, rpClearance.getValue())
+				: null;
+			return super.preCheck(components);
+		}
+
 		/*
-		 * Get the values from the model using a geometric filter combined with the
-		 * second filter from the UI. It is best to start the filter chains with
-		 * a geometric filter to allow the use of optimized geometric queries.
+		 * If the same components with the same geometry are checked again,
+		 * only the tolerance can have changed, so the intersection volumes of
+		 * the previous run are filtered again instead of computing them. The
+		 * bounding boxes are compared first, and the meshes only if they are
+		 * all unchanged. The fingerprints computed for the comparison are
+		 * shared with the snapshot and the clash cache of the run.
 		 */
-		ComponentFilter secondFilter = rpComponentFilter2.getValue();
-		ComponentFilter targetComponentFilter = AABBIntersectionFilter.ofComponentBounds(component).and(secondFilter);
-		Collection<Component> targets = SMC.getModel().getComponents(targetComponentFilter);
+		ComponentFingerprints fingerprints = new ComponentFingerprints();
+		ClashRunSnapshot.Key runKey = ClashRunSnapshot.key(sources, targets, rpBroadphase.getValue());
+		ClashRunSnapshot previousSnapshot = snapshot;
+		reuseSnapshot = previousSnapshot != null
+			&& previousSnapshot.isReusableFor(runKey, sources, targets, fingerprints);
+		if (!reuseSnapshot) {
+			snapshot = new ClashRunSnapshot(runKey, fingerprints);
+		}
+
+		broadphase = null;
+		if (!reuseSnapshot && BROADPHASE_SWEEP_AND_PRUNE.equals(rpBroadphase.getValue())) {
+			/*
+			 * Snapshot the bounding boxes of both component sets and find all
+			 * the candidate pairs before any component is checked.
+			 */
+			broadphase = SweepAndPruneBroadphase.of(sources, targets);
+		}
 
 		/*
-		 * Run the clash check for each component in the bounding box.
+		 * The clash cache is not needed when the previous run is reused. It is
+		 * not touched, so that the pairs of the previous run stay in the cache
+		 * file.
 		 */
+		clashCache = !reuseSnapshot && Boolean.TRUE.equals(rpUseClashCache.getValue()) ? loadClashCache() : null;
+		if (clashCache != null) {
+			clashCache.beginRun(fingerprints);
+		}
+
+		clusters = null;
+		if (Boolean.TRUE.equals(rpClusterClashes.getValue())) {
+			/*
+			 * The clusters can only be formed once all the clashes are known,
+			 * so all the source components are evaluated before the checking
+			 * starts. The check method then reports each cluster for one of
+			 * its source components.
+			 */
+			double allowedTolerance = rpAllowedTolerance.getValue();
+			BiFunction<Component, Component, ClashEvaluation> evaluator = createEvaluator(allowedTolerance);
+			List<ClashEvaluation> evaluations = sources.parallelStream()
+				.flatMap(source -> evaluateSource(source, evaluator, allowedTolerance).stream())
+				.collect(Collectors.toList());
+			clusters = ClashClusters.bySource(evaluations, allowedTolerance, rpClusterRadius.getValue());
+		}
+		return super.preCheck(components);
+	}
+
+	/**
+	 * Loads the clash cache from the cache file when it is used for the first
+	 * time or when another file has been selected. If the file can not be
+	 * read, the checking is done without the cache.
+	 *
+	 * @return the clash cache, or null if it could not be loaded
+	 */
+	private ClashCache loadClashCache() {
+		String fileName = rpClashCacheFile.getValue();
+		Path file;
+		try {
+			file = fileName == null || fileName.trim().isEmpty() ? null : Paths.get(fileName.trim());
+		} catch (InvalidPathException e) {
+			LOG.error(e.getMessage(), e);
+			return null;
+		}
+		if (loadedClashCache == null || !Objects.equals(file, loadedClashCacheFile)) {
+			try {
+				loadedClashCache = ClashCache.load(file);
+				loadedClashCacheFile = file;
+			} catch (IOException e) {
+				loadedClashCache = null;
+				LOG.error(e.getMessage(), e);
+			}
+		}
+		return loadedClashCache;
+	}
+
+	@Override
+	public Collection<Result> check(Component component, ResultFactory resultFactory) {
 		Collection<Result> results = new ArrayList<>();
-		for (Component target : targets) {
-			results.addAll(clashCheck(component, target, resultFactory));
+		Map<Component, List<ClashClusters.Cluster>> currentClusters = clusters;
+		if (clearanceMode) {
+			results.addAll(checkClearance(component, resultFactory));
+		} else if (currentClusters != null) {
+			for (ClashClusters.Cluster cluster : currentClusters.getOrDefault(component, Collections.emptyList())) {
+				results.addAll(createClusterResults(cluster, resultFactory));
+			}
+		} else {
+			double allowedTolerance = rpAllowedTolerance.getValue();
+			BiFunction<Component, Component, ClashEvaluation> evaluator = createEvaluator(allowedTolerance);
+			for (ClashEvaluation evaluation : evaluateSource(component, evaluator, allowedTolerance)) {
+				results.addAll(createResults(evaluation, resultFactory));
+			}
 		}
 
+		finishSourceComponent(broadphase, clashCache, results.size());
+
 		return results;
 	}
 
+	/**
+	 * Creates the function evaluating a source and target pair, using the
+	 * clash cache if it is enabled.
+	 *
+	 * @param allowedTolerance the volume below which intersections are ignored
+	 * @return the function evaluating a pair
+	 */
+	private BiFunction<Component, Component, ClashEvaluation> createEvaluator(double allowedTolerance) {
+		ClashCache currentClashCache = clashCache;
+		return currentClashCache != null
+			? (source, target) -> currentClashCache.evaluate(source, target, allowedTolerance)
+			: (source, target) -> ClashEvaluation.evaluate(source, target, allowedTolerance);
+	}
+
+	/**
+	 * Evaluates the clashes of a source component, or takes them from the
+	 * previous run if only the tolerance has changed.
+	 *
+	 * @param component the source component
+	 * @param evaluator the function evaluating a source and target pair
+	 * @param allowedTolerance the volume below which intersections are ignored
+	 * @return the evaluations of the source component
+	 */
+	private List<ClashEvaluation> evaluateSource(Component component,
+		BiFunction<Component, Component, ClashEvaluation> evaluator, double allowedTolerance) {
+		return reuseSnapshot
+			? reuseEvaluations(component, evaluator, allowedTolerance)
+			: computeEvaluations(component, evaluator);
+	}
+
+	/**
+	 * Evaluates the clashes of a source component and stores the evaluations
+	 * in the snapshot of the run.
+	 *
+	 * @param component the source component
+	 * @param evaluator the function evaluating a source and target pair
+	 * @return the evaluations of the source component
+	 */
+	private List<ClashEvaluation> computeEvaluations(Component component,
+		BiFunction<Component, Component, ClashEvaluation> evaluator) {
+		List<Component> pairedTargets = findPairedTargets(component, 0.0);
+
+		/*
+		 * Run the clash check for each component in the bounding box. The
+		 * intersections are computed in the fork/join pool, and the results are
+		 * created afterwards in this thread.
+		 */
+		List<ClashEvaluation> evaluations = ClashNarrowphaseTask.evaluateAll(component, pairedTargets, evaluator,
+			loadMonitor);
+		snapshot.put(component, evaluations);
+		return evaluations;
+	}
+
+	/**
+	 * Returns the evaluations of a source component stored in the previous
+	 * run. A pair that was skipped because its volume upper bound was below
+	 * the old tolerance is evaluated again if the bound is not below the new
+	 * tolerance.
+	 *
+	 * @param component the source component
+	 * @param evaluator the function evaluating a source and target pair
+	 * @param allowedTolerance the volume below which intersections are ignored
+	 * @return the evaluations of the source component
+	 */
+	private List<ClashEvaluation> reuseEvaluations(Component component,
+		BiFunction<Component, Component, ClashEvaluation> evaluator, double allowedTolerance) {
+		List<ClashEvaluation> evaluations = new ArrayList<>(snapshot.get(component));
+		boolean updated = false;
+		for (int i = 0; i < evaluations.size(); i++) {
+			ClashEvaluation evaluation = evaluations.get(i);
+			if (!evaluation.exact && evaluation.volumeUpperBound >= allowedTolerance) {
+				evaluations.set(i, evaluator.apply(evaluation.source, evaluation.target));
+				updated = true;
+			}
+		}
+		if (updated) {
+			snapshot.put(component, evaluations);
+		}
+		return evaluations;
+	}
+
+	/**
+	 * Checks which of the candidate targets come closer to the source
+	 * component than the clearance. The triangle hierarchies of the components
+	 * are built once per run and the traversal of a pair stops at the first
+	 * pair of triangles within the clearance.
+	 *
+	 * @param component the source component
+	 * @param resultFactory the result factory
+	 * @return the results of the targets within the clearance
+	 */
+	private Collection<Result> checkClearance(Component component, ResultFactory resultFactory) {
+		double clearance = rpClearance.getValue();
+		List<Component> pairedTargets = findPairedTargets(component, clearance);
+		List<Boolean> withinClearance = ClashNarrowphaseTask.evaluateAll(component, pairedTargets,
+			(source, target) -> TriangleBoundingVolumeHierarchy.isWithinDistance(hierarchy(source),
+				hierarchy(target), clearance),
+			loadMonitor);
+
+		Collection<Result> results = new ArrayList<>();
+		for (int i = 0; i < pairedTargets.size(); i++) {
+			if (withinClearance.get(i)) {
+				results.add(createClearanceResult(component, pairedTargets.get(i), resultFactory));
+			}
+		}
+		return results;
+	}
+
+	private TriangleBoundingVolumeHierarchy hierarchy(Component component) {
+		/*
+		 * The hierarchy is built outside the map, so that the other threads
+		 * are not blocked while a large mesh is read.
+		 */
+		Map<Component, TriangleBoundingVolumeHierarchy> currentHierarchies = hierarchies;
+		TriangleBoundingVolumeHierarchy hierarchy = currentHierarchies.get(component);
+		if (hierarchy == null) {
+			hierarchy = TriangleBoundingVolumeHierarchy.of(component.getTriangleMesh());
+			TriangleBoundingVolumeHierarchy previous = currentHierarchies.putIfAbsent(component, hierarchy);
+			if (previous != null) {
+				hierarchy = previous;
+			}
+		}
+		return hierarchy;
+	}
+
+	/**
+	 * Finds the targets to run the check for. When the filters select
+	 * overlapping sets, the same two components are met both as A against B
+	 * and as B against A, so each unordered pair is evaluated only once and
+	 * produces only one result per clash.
+	 *
+	 * @param component the source component
+	 * @param margin the largest gap allowed between the bounding boxes
+	 * @return the target components paired with the source component
+	 */
+	private List<Component> findPairedTargets(Component component, double margin) {
+		SweepAndPruneBroadphase currentBroadphase = broadphase;
+		Collection<Component> targets = currentBroadphase != null
+			? currentBroadphase.getCandidates(component)
+			: findTargets(component, margin);
+
+		List<Component> pairedTargets = new ArrayList<>();
+		for (Component target : targets) {
+			if (target.equals(component)) {
+				continue;
+			}
+			if (sourceComponents.contains(target) && !pairRegistry.markEvaluated(component, target)) {
+				continue;
+			}
+			pairedTargets.add(target);
+		}
+		return pairedTargets;
+	}
+
+	/**
+	 * Finds the target components whose bounding boxes intersect the bounding
+	 * box of the given component expanded by the margin.
+	 *
+	 * @param component the source component
+	 * @param margin the expansion of the bounding box of the component
+	 * @return the target components
+	 */
+	private Collection<Component> findTargets(Component component, double margin) {
+		/*
+		 * Get the values from the model using a geometric filter combined with the
+		 * second filter from the UI. It is best to start the filter chains with
+		 * a geometric filter to allow the use of optimized geometric queries.
+		 */
+		ComponentFilter secondFilter = rpComponentFilter2.getValue();
+		ComponentFilter boundsFilter = margin > 0.0
+			? AABBIntersectionFilter.ofComponentBounds(component, margin, margin)
+			: AABBIntersectionFilter.ofComponentBounds(component);
+		ComponentFilter targetComponentFilter = boundsFilter.and(secondFilter);
+		return targetModel.getComponents(targetComponentFilter);
+	}
+
+	/**
+	 * Counts the clashes found for a checked source component. Once every
+	 * source component has been checked, the triangle hierarchies are
+	 * released, the clash cache is saved and the statistics of the run are
+	 * logged: how the work was spread over the threads, how many of the
+	 * candidate pairs of the sweep and prune broadphase turned out to be
+	 * clashes and how many pairs were taken from the clash cache.
+	 *
+	 * @param currentBroadphase the broadphase of the current run, or null
+	 * @param currentClashCache the clash cache of the current run, or null
+	 * @param componentClashCount the number of clashes found for the component
+	 */
+	private void finishSourceComponent(SweepAndPruneBroadphase currentBroadphase, ClashCache currentClashCache,
+		int componentClashCount) {
+		clashCount.addAndGet(componentClashCount);
+		if (uncheckedSourceCount.decrementAndGet() != 0) {
+			return;
+		}
+		if (snapshot != null) {
+			snapshot.markComplete();
+		}
+		hierarchies.clear();
+		if (reuseSnapshot) {
+			LOG.info("Reused the intersection volumes of the previous run, {} clashes were found", clashCount.get());
+			return;
+		}
+		loadMonitor.log(LOG);
+		if (currentBroadphase != null) {
+			LOG.info("Sweep and prune broadphase produced {} candidate pairs, {} clashes were found",
+				currentBroadphase.getCandidatePairCount(), clashCount.get());
+		}
+		if (currentClashCache != null) {
+			LOG.info("Clash cache: {} pairs reused, {} pairs evaluated", currentClashCache.getHitCount(),
+				currentClashCache.getMissCount());
+			try {
+				currentClashCache.save();
+			} catch (IOException e) {
+				LOG.error(e.getMessage(), e);
+			}
+		}
+	}
+
 	@Override
 	public UIContainer getParametersUIDefinition() {
 		return uiDefinition.getDefinitionContainer();
 	}
 
 	/**
-	 * Checks for clashes between components and generates results.
+	 * Generates the results for the clashes of an evaluated component pair.
 	 *
-	 * @param source the source component
-	 * @param target the target component
+	 * @param evaluation the evaluated source and target component pair
+	 * @param resultFactory the result factory
 	 */
-	private Collection<Result> clashCheck(Component source, Component target, ResultFactory resultFactory) {
+	private Collection<Result> createResults(ClashEvaluation evaluation, ResultFactory resultFactory) {
 
+		final Component source = evaluation.source;
+		final Component target = evaluation.target;
 		final double allowedTolerance = rpAllowedTolerance.getValue();
 		final double transparency = 0.5;
 
 		Collection<Result> results = new ArrayList<>();
 
-		Set<Intersection> intersections = source.getIntersections(target);
-
 		/*
 		 * Loop through each intersection to find the involved components, create
 		 * results, and visualize them.
 		 */
-		for (Intersection intersection : intersections) {
-			if (intersection.getVolume() < allowedTolerance) {
+		for (double intersectionVolume : evaluation.intersectionVolumes) {
+			if (intersectionVolume < allowedTolerance) {
 				continue;
 			} else {
 				String name = source.getName() + " clashes with " + target.getName();
@@ -125,4 +637,63 @@ public final class ClashDetectionRule extends OneByOneRule {
 
 		return results;
 	}
+
+	/**
+	 * Generates the result of a target component within the clearance of the
+	 * source component.
+	 *
+	 * @param source the source component
+	 * @param target the target component
+	 * @param resultFactory the result factory
+	 */
+	private Result createClearanceResult(Component source, Component target, ResultFactory resultFactory) {
+		final double transparency = 0.5;
+		String name = source.getName() + " is too close to " + target.getName();
+		String description = "The distance between " + source.getName() + " and " + target.getName()
+			+ " is less than the required clearance";
+
+		return resultFactory
+			.create(name, description)
+			.withInvolvedComponent(target)
+			.withVisualization(visualization -> {
+				visualization.addComponent(source, transparency);
+				visualization.addComponent(target, transparency);
+			});
+	}
+
+	/**
+	 * Generates the result of a cluster of clashes. A cluster of a single
+	 * clashing pair is reported like an unclustered clash.
+	 *
+	 * @param cluster the cluster of clashes
+	 * @param resultFactory the result factory
+	 */
+	private Collection<Result> createClusterResults(ClashClusters.Cluster cluster, ResultFactory resultFactory) {
+		if (cluster.evaluations.size() == 1) {
+			return createResults(cluster.evaluations.get(0), resultFactory);
+		}
+
+		final double transparency = 0.5;
+		Set<Component> involvedComponents = cluster.getComponents();
+		String componentNames = involvedComponents.stream()
+			.map(Component::getName)
+			.collect(Collectors.joining(", "));
+
+		ClashEvaluation first = cluster.evaluations.get(0);
+		String name = cluster.clashCount + " clashes between " + first.source.getComponentType() + " and "
+			+ first.target.getComponentType() + " components";
+		String description = "There are " + cluster.clashCount + " clashes close to each other between "
+			+ componentNames;
+
+		Result result = resultFactory
+			.create(name, description)
+			.withInvolvedComponents(involvedComponents)
+			.withVisualization(visualization -> {
+				for (Component involvedComponent : involvedComponents) {
+					visualization.addComponent(involvedComponent, transparency);
+				}
+			});
+
+		return Collections.singletonList(result);
+	}
 }
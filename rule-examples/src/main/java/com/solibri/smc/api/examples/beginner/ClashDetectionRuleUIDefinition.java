@@ -6,6 +6,7 @@ import com.solibri.smc.api.ui.UIComponent;
 import com.solibri.smc.api.ui.UIContainer;
 import com.solibri.smc.api.ui.UIContainerVertical;
 import com.solibri.smc.api.ui.UILabel;
+import com.solibri.smc.api.ui.UIRadioButtonPanelVertical;
 import com.solibri.smc.api.ui.UIRuleParameter;
 
 /**
@@ -80,6 +81,26 @@ class ClashDetectionRuleUIDefinition {
 		 */
 		uiContainer.addComponent(createAllowedToleranceUIDefinition());
 
+		/*
+		 * Add the selection between hard clashes and clearance checking.
+		 */
+		uiContainer.addComponent(createClashModeUIDefinition(resources));
+
+		/*
+		 * Add the selection of the broadphase used to find the clash candidates.
+		 */
+		uiContainer.addComponent(createBroadphaseUIDefinition(resources));
+
+		/*
+		 * Add the option to reuse the clashes of unchanged components.
+		 */
+		uiContainer.addComponent(createClashCacheUIDefinition());
+
+		/*
+		 * Add the clustering of the clashes.
+		 */
+		uiContainer.addComponent(createClusteringUIDefinition());
+
 		return uiContainer;
 	}
 
@@ -115,4 +136,55 @@ class ClashDetectionRuleUIDefinition {
 		uiContainer.addComponent(UIRuleParameter.create(clashDetectionRule.rpAllowedTolerance));
 		return uiContainer;
 	}
+
+	/**
+	 * Create the UI definition of the clash mode and the clearance.
+	 *
+	 * @param resources the resources of the rule
+	 * @return the UI definition container of the clash mode
+	 */
+	private UIComponent createClashModeUIDefinition(RuleResources resources) {
+		UIContainer uiContainer = UIContainerVertical.create(resources.getString("rpClashMode.NAME"),
+			BorderType.LINE);
+		uiContainer.addComponent(UIRadioButtonPanelVertical.create(clashDetectionRule.rpClashMode));
+		uiContainer.addComponent(UIRuleParameter.create(clashDetectionRule.rpClearance));
+		return uiContainer;
+	}
+
+	/**
+	 * Create the UI definition of the broadphase selection.
+	 *
+	 * @param resources the resources of the rule
+	 * @return the UI definition container of the broadphase selection
+	 */
+	private UIComponent createBroadphaseUIDefinition(RuleResources resources) {
+		UIContainer uiContainer = UIContainerVertical.create(resources.getString("rpBroadphase.NAME"),
+			BorderType.LINE);
+		uiContainer.addComponent(UIRadioButtonPanelVertical.create(clashDetectionRule.rpBroadphase));
+		return uiContainer;
+	}
+
+	/**
+	 * Create the UI definition of the clash cache option.
+	 *
+	 * @return the UI definition container of the clash cache option
+	 */
+	private UIComponent createClashCacheUIDefinition() {
+		UIContainer uiContainer = UIContainerVertical.create();
+		uiContainer.addComponent(UIRuleParameter.create(clashDetectionRule.rpUseClashCache));
+		uiContainer.addComponent(UIRuleParameter.create(clashDetectionRule.rpClashCacheFile));
+		return uiContainer;
+	}
+
+	/**
+	 * Create the UI definition of the clash clustering.
+	 *
+	 * @return the UI definition container of the clash clustering
+	 */
+	private UIComponent createClusteringUIDefinition() {
+		UIContainer uiContainer = UIContainerVertical.create();
+		uiContainer.addComponent(UIRuleParameter.create(clashDetectionRule.rpClusterClashes));
+		uiContainer.addComponent(UIRuleParameter.create(clashDetectionRule.rpClusterRadius));
+		return uiContainer;
+	}
 }
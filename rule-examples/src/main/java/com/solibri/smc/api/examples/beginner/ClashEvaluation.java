@@ -0,0 +1,80 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.util.Set;
+
+import com.solibri.smc.api.intersection.Intersection;
+import com.solibri.smc.api.model.Component;
+
+/**
+ * The outcome of the clash check of one source and target component pair.
+ * Only the volumes of the intersections are stored, so that the evaluation can
+ * be done in any thread and the results can be created later in the checking
+ * thread.
+ *
+ * The exact intersections are computed only if a cheap upper bound of the
+ * intersection volume does not already show that no intersection can reach
+ * the allowed tolerance.
+ */
+final class ClashEvaluation {
+
+	final Component source;
+
+	final Component target;
+
+	/**
+	 * The volumes of the intersections between the source and the target.
+	 */
+	final double[] intersectionVolumes;
+
+	/**
+	 * The tightest known upper bound of the volume of any intersection
+	 * between the source and the target.
+	 */
+	final double volumeUpperBound;
+
+	/**
+	 * True if the intersections were computed, false if the pair was skipped
+	 * because of the upper bound.
+	 */
+	final boolean exact;
+
+	ClashEvaluation(Component source, Component target, double[] intersectionVolumes, double volumeUpperBound,
+		boolean exact) {
+		this.source = source;
+		this.target = target;
+		this.intersectionVolumes = intersectionVolumes;
+		this.volumeUpperBound = volumeUpperBound;
+		this.exact = exact;
+	}
+
+	/**
+	 * Evaluates the clashes between the given components. The overlap volume
+	 * of the bounding boxes is checked first, then the overlap of the
+	 * footprints times the overlap of the heights, and the exact intersections
+	 * are computed only if both of the bounds can exceed the allowed tolerance.
+	 *
+	 * @param source the source component
+	 * @param target the target component
+	 * @param allowedTolerance the volume below which intersections are ignored
+	 * @return the evaluation of the pair
+	 */
+	static ClashEvaluation evaluate(Component source, Component target, double allowedTolerance) {
+		double boundingBoxBound = ClashVolumeBounds.boundingBoxOverlapVolume(source, target);
+		if (boundingBoxBound < allowedTolerance) {
+			return new ClashEvaluation(source, target, new double[0], boundingBoxBound, false);
+		}
+		double footprintBound = ClashVolumeBounds.footprintOverlapVolume(source, target);
+		double volumeUpperBound = Math.min(boundingBoxBound, footprintBound);
+		if (volumeUpperBound < allowedTolerance) {
+			return new ClashEvaluation(source, target, new double[0], volumeUpperBound, false);
+		}
+
+		Set<Intersection> intersections = source.getIntersections(target);
+		double[] volumes = new double[intersections.size()];
+		int i = 0;
+		for (Intersection intersection : intersections) {
+			volumes[i++] = intersection.getVolume();
+		}
+		return new ClashEvaluation(source, target, volumes, volumeUpperBound, true);
+	}
+}
@@ -0,0 +1,99 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+
+import com.solibri.smc.api.model.Component;
+
+/**
+ * Fork/join task that evaluates the clashes between a source component and
+ * its candidate targets. The type of the evaluation depends on the evaluator,
+ * so the same task runs both the hard clash and the clearance checks. Long
+ * candidate lists are split in halves until the pieces are small enough, so
+ * that idle worker threads can steal the pieces and a single component with
+ * thousands of neighbours does not become a long serial tail at the end of
+ * the checking.
+ */
+final class ClashNarrowphaseTask<T> extends RecursiveTask<List<T>> {
+
+	/**
+	 * Generated UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The number of pairs that are evaluated without splitting the task.
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 4;
+
+	private final Component source;
+
+	private final List<Component> targets;
+
+	private final int from;
+
+	private final int to;
+
+	private final BiFunction<Component, Component, T> evaluator;
+
+	private final ThreadLoadMonitor loadMonitor;
+
+	private ClashNarrowphaseTask(Component source, List<Component> targets, int from, int to,
+		BiFunction<Component, Component, T> evaluator, ThreadLoadMonitor loadMonitor) {
+		this.source = source;
+		this.targets = targets;
+		this.from = from;
+		this.to = to;
+		this.evaluator = evaluator;
+		this.loadMonitor = loadMonitor;
+	}
+
+	/**
+	 * Evaluates the clashes between the source and each of the targets. Short
+	 * target lists are evaluated in the calling thread, longer ones are spread
+	 * over the common fork/join pool.
+	 *
+	 * @param source the source component
+	 * @param targets the candidate target components
+	 * @param evaluator the function evaluating a single pair
+	 * @param loadMonitor the monitor collecting the busy time of the threads
+	 * @param <T> the type of the evaluation of a pair
+	 * @return the evaluations in the order of the targets
+	 */
+	static <T> List<T> evaluateAll(Component source, List<Component> targets,
+		BiFunction<Component, Component, T> evaluator, ThreadLoadMonitor loadMonitor) {
+		ClashNarrowphaseTask<T> task = new ClashNarrowphaseTask<>(source, targets, 0, targets.size(), evaluator,
+			loadMonitor);
+		if (targets.size() <= SEQUENTIAL_THRESHOLD) {
+			return task.compute();
+		}
+		return ForkJoinPool.commonPool().invoke(task);
+	}
+
+	@Override
+	protected List<T> compute() {
+		if (to - from <= SEQUENTIAL_THRESHOLD) {
+			long start = System.nanoTime();
+			List<T> evaluations = new ArrayList<>(to - from);
+			for (int i = from; i < to; i++) {
+				evaluations.add(evaluator.apply(source, targets.get(i)));
+			}
+			loadMonitor.addBusyTime(System.nanoTime() - start);
+			return evaluations;
+		}
+
+		int middle = (from + to) >>> 1;
+		ClashNarrowphaseTask<T> first = new ClashNarrowphaseTask<>(source, targets, from, middle, evaluator,
+			loadMonitor);
+		ClashNarrowphaseTask<T> second = new ClashNarrowphaseTask<>(source, targets, middle, to, evaluator,
+			loadMonitor);
+		first.fork();
+		List<T> secondEvaluations = second.compute();
+		List<T> evaluations = first.join();
+		evaluations.addAll(secondEvaluations);
+		return evaluations;
+	}
+}
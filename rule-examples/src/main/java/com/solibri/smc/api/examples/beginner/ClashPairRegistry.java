@@ -0,0 +1,46 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.solibri.smc.api.model.Component;
+
+/**
+ * Keeps track of the component pairs whose clashes have already been
+ * evaluated during a checking run. The pairs are unordered: a pair of A and B
+ * is the same pair as B and A, so the intersections of a pair are computed
+ * only once even if both components are selected by both filters. The registry
+ * can be used from several checking threads at the same time.
+ */
+final class ClashPairRegistry {
+
+	private final Set<String> evaluatedPairs = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Returns the key of the unordered pair of the given components. The GUIDs
+	 * of the components are ordered so that the key is the same regardless of
+	 * the order of the components.
+	 *
+	 * @param first the first component
+	 * @param second the second component
+	 * @return the key of the pair
+	 */
+	static String pairKey(Component first, Component second) {
+		String firstGuid = first.getGUID();
+		String secondGuid = second.getGUID();
+		return firstGuid.compareTo(secondGuid) <= 0
+			? firstGuid + ":" + secondGuid
+			: secondGuid + ":" + firstGuid;
+	}
+
+	/**
+	 * Marks the pair of the given components as evaluated.
+	 *
+	 * @param first the first component
+	 * @param second the second component
+	 * @return true if the pair was not evaluated before, false otherwise
+	 */
+	boolean markEvaluated(Component first, Component second) {
+		return evaluatedPairs.add(pairKey(first, second));
+	}
+}
@@ -0,0 +1,198 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import com.solibri.geometry.linearalgebra.Vector3d;
+import com.solibri.geometry.primitive3d.AABB3d;
+import com.solibri.smc.api.model.Component;
+
+/**
+ * The raw clash evaluations of a checking run, stored per source component.
+ * The evaluations hold the intersection volumes before the tolerance is
+ * applied, so when the rule is checked again with the same component
+ * selections and only the tolerance has changed, the results can be created
+ * from the stored volumes without computing any intersections.
+ *
+ * The snapshot is identified by a key that holds the bounding box of every
+ * selected component by its GUID, which is cheap to compare. Only when the
+ * keys are equal are the meshes compared: the snapshot keeps the geometry
+ * fingerprints of the components of the evaluated pairs, and these are
+ * computed again for the new run. A component that was not in any evaluated
+ * pair and whose bounding box is unchanged can not be in any pair now either.
+ */
+final class ClashRunSnapshot {
+
+	private final Key key;
+
+	private final ComponentFingerprints fingerprints;
+
+	private final Map<Component, List<ClashEvaluation>> evaluations = new ConcurrentHashMap<>();
+
+	/**
+	 * The fingerprints of the components in the evaluated pairs by their
+	 * GUIDs.
+	 */
+	private final Map<String, Long> evaluatedFingerprints = new ConcurrentHashMap<>();
+
+	private volatile boolean complete;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param key the key of the run
+	 * @param fingerprints the fingerprints of the components in the run
+	 */
+	ClashRunSnapshot(Key key, ComponentFingerprints fingerprints) {
+		this.key = key;
+		this.fingerprints = fingerprints;
+	}
+
+	/**
+	 * Computes the key of a checking run from the selected source and target
+	 * components and the broadphase used. The key does not depend on the
+	 * order of the components.
+	 *
+	 * @param sources the source components
+	 * @param targets the target components
+	 * @param broadphase the selected broadphase
+	 * @return the key of the run
+	 */
+	static Key key(Collection<Component> sources, Collection<Component> targets, String broadphase) {
+		return new Key(broadphase, bounds(sources), bounds(targets));
+	}
+
+	/**
+	 * Returns true if this snapshot was recorded with an equal key, every
+	 * source component of the run was checked and the components of the
+	 * evaluated pairs still have the same geometry. The meshes are read only
+	 * if the keys are equal.
+	 *
+	 * @param runKey the key of the new run
+	 * @param sources the source components of the new run
+	 * @param targets the target components of the new run
+	 * @param runFingerprints the fingerprints of the components in the new run
+	 * @return true if the evaluations of this snapshot can be reused
+	 */
+	boolean isReusableFor(Key runKey, Collection<Component> sources, Collection<Component> targets,
+		ComponentFingerprints runFingerprints) {
+		if (!complete || !key.equals(runKey)) {
+			return false;
+		}
+		return Stream.concat(sources.stream(), targets.stream()).parallel().allMatch(component -> {
+			Long fingerprint = evaluatedFingerprints.get(component.getGUID());
+			return fingerprint == null || fingerprint == runFingerprints.get(component);
+		});
+	}
+
+	/**
+	 * Stores the evaluations of a checked source component.
+	 *
+	 * @param source the source component
+	 * @param sourceEvaluations the evaluations of the source component
+	 */
+	void put(Component source, List<ClashEvaluation> sourceEvaluations) {
+		evaluations.put(source, sourceEvaluations);
+		for (ClashEvaluation evaluation : sourceEvaluations) {
+			evaluatedFingerprints.put(evaluation.source.getGUID(), fingerprints.get(evaluation.source));
+			evaluatedFingerprints.put(evaluation.target.getGUID(), fingerprints.get(evaluation.target));
+		}
+	}
+
+	/**
+	 * Returns the stored evaluations of a source component.
+	 *
+	 * @param source the source component
+	 * @return the evaluations of the source component
+	 */
+	List<ClashEvaluation> get(Component source) {
+		return evaluations.getOrDefault(source, Collections.emptyList());
+	}
+
+	/**
+	 * Marks the snapshot complete once every source component has been checked.
+	 */
+	void markComplete() {
+		complete = true;
+	}
+
+	/**
+	 * Maps the GUIDs of the components to their bounding boxes.
+	 */
+	private static Map<String, Bounds> bounds(Collection<Component> components) {
+		Map<String, Bounds> bounds = new HashMap<>();
+		for (Component component : components) {
+			AABB3d boundingBox = component.getBoundingBox();
+			bounds.put(component.getGUID(), new Bounds(boundingBox.getLowerBound(), boundingBox.getUpperBound()));
+		}
+		return bounds;
+	}
+
+	/**
+	 * The component selections of a checking run. Two keys are equal only if
+	 * they have the same broadphase and exactly the same components with the
+	 * same bounding boxes.
+	 */
+	static final class Key {
+
+		private final String broadphase;
+
+		private final Map<String, Bounds> sourceBounds;
+
+		private final Map<String, Bounds> targetBounds;
+
+		private Key(String broadphase, Map<String, Bounds> sourceBounds, Map<String, Bounds> targetBounds) {
+			this.broadphase = broadphase;
+			this.sourceBounds = sourceBounds;
+			this.targetBounds = targetBounds;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return broadphase.equals(other.broadphase) && sourceBounds.equals(other.sourceBounds)
+				&& targetBounds.equals(other.targetBounds);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(broadphase, sourceBounds, targetBounds);
+		}
+	}
+
+	/**
+	 * The corner coordinates of a bounding box, compared exactly.
+	 */
+	private static final class Bounds {
+
+		private final double[] coordinates;
+
+		Bounds(Vector3d lower, Vector3d upper) {
+			this.coordinates = new double[] { lower.getX(), lower.getY(), lower.getZ(), upper.getX(), upper.getY(),
+				upper.getZ() };
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Bounds && Arrays.equals(coordinates, ((Bounds) obj).coordinates);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(coordinates);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.solibri.smc.api.examples.beginner;
+
+import com.solibri.geometry.primitive2d.Area;
+import com.solibri.geometry.primitive2d.MArea;
+import com.solibri.geometry.primitive3d.AABB3d;
+import com.solibri.smc.api.model.Component;
+
+/**
+ * Cheap upper bounds for the intersection volume of two components. The
+ * intersection of two components is always contained both in the overlap of
+ * their bounding boxes and in the overlap of their footprints extruded over
+ * the common height range, so neither bound can be smaller than the volume of
+ * any of the intersections.
+ */
+final class ClashVolumeBounds {
+
+	/**
+	 * The bounds are enlarged by this factor to stay conservative against the
+	 * rounding errors of the exact intersection volumes.
+	 */
+	private static final double SAFETY_FACTOR = 1.000001;
+
+	private ClashVolumeBounds() {
+	}
+
+	/**
+	 * Returns the volume of the overlap of the bounding boxes of the
+	 * components.
+	 *
+	 * @param first the first component
+	 * @param second the second component
+	 * @return the upper bound of the intersection volume
+	 */
+	static double boundingBoxOverlapVolume(Component first, Component second) {
+		AABB3d firstBounds = first.getBoundingBox();
+		AABB3d secondBounds = second.getBoundingBox();
+		double overlapX = Math.min(firstBounds.getUpperBound().getX(), secondBounds.getUpperBound().getX())
+			- Math.max(firstBounds.getLowerBound().getX(), secondBounds.getLowerBound().getX());
+		double overlapY = Math.min(firstBounds.getUpperBound().getY(), secondBounds.getUpperBound().getY())
+			- Math.max(firstBounds.getLowerBound().getY(), secondBounds.getLowerBound().getY());
+		double overlapZ = heightOverlap(firstBounds, secondBounds);
+		if (overlapX <= 0.0 || overlapY <= 0.0 || overlapZ <= 0.0) {
+			return 0.0;
+		}
+		return overlapX * overlapY * overlapZ * SAFETY_FACTOR;
+	}
+
+	/**
+	 * Returns the area of the overlap of the footprints of the components
+	 * multiplied by the overlap of their height ranges. If either of the
+	 * footprints is empty, the footprints can not be trusted and an infinite
+	 * bound is returned.
+	 *
+	 * @param first the first component
+	 * @param second the second component
+	 * @return the upper bound of the intersection volume
+	 */
+	static double footprintOverlapVolume(Component first, Component second) {
+		double overlapZ = heightOverlap(first.getBoundingBox(), second.getBoundingBox());
+		if (overlapZ <= 0.0) {
+			return 0.0;
+		}
+		Area firstFootprint = first.getFootprint().getArea();
+		Area secondFootprint = second.getFootprint().getArea();
+		if (firstFootprint.isEmpty() || secondFootprint.isEmpty()) {
+			return Double.POSITIVE_INFINITY;
+		}
+		MArea overlap = MArea.create(firstFootprint);
+		overlap.intersect(secondFootprint);
+		return overlap.getSize() * overlapZ * SAFETY_FACTOR;
+	}
+
+	private static double heightOverlap(AABB3d firstBounds, AABB3d secondBounds) {
+		return Math.min(firstBounds.getUpperBound().getZ(), secondBounds.getUpperBound().getZ())
+			- Math.max(firstBounds.getLowerBound().getZ(), secondBounds.getLowerBound().getZ());
+	}
+}
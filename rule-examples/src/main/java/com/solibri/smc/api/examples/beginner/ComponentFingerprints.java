@@ -0,0 +1,83 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.solibri.geometry.linearalgebra.Vector3d;
+import com.solibri.geometry.primitive3d.AABB3d;
+import com.solibri.geometry.primitive3d.Triangle3d;
+import com.solibri.smc.api.model.Component;
+
+/**
+ * The geometry fingerprints of the components of one checking run. The
+ * fingerprint of a component is computed when it is first needed and then
+ * shared by the run snapshot and the clash cache, so each mesh is hashed at
+ * most once per run.
+ */
+final class ComponentFingerprints {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * The number of triangles from the start of a mesh whose vertices are
+	 * always hashed. After them only the triangles at power of two indices
+	 * are hashed.
+	 */
+	private static final int FULLY_HASHED_TRIANGLE_COUNT = 16;
+
+	private final Map<Component, Long> fingerprints = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the fingerprint of the given component. The fingerprint is
+	 * computed outside the map, so that the other threads are not blocked
+	 * while the mesh is read.
+	 *
+	 * @param component the component
+	 * @return the geometry fingerprint of the component
+	 */
+	long get(Component component) {
+		Long fingerprint = fingerprints.get(component);
+		if (fingerprint == null) {
+			fingerprint = compute(component);
+			Long previous = fingerprints.putIfAbsent(component, fingerprint);
+			if (previous != null) {
+				fingerprint = previous;
+			}
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Computes a hash of the bounding box, the triangle count and a sample of
+	 * the vertex coordinates of the component. The vertices of the first
+	 * triangles and of the triangles at power of two indices are hashed, so
+	 * only a logarithmic number of vertices is hashed for large meshes.
+	 *
+	 * @param component the component
+	 * @return the geometry fingerprint of the component
+	 */
+	static long compute(Component component) {
+		AABB3d bounds = component.getBoundingBox();
+		long hash = FNV_OFFSET_BASIS;
+		hash = mix(hash, bounds.getLowerBound());
+		hash = mix(hash, bounds.getUpperBound());
+		long triangleCount = 0;
+		for (Triangle3d triangle : component.getTriangleMesh()) {
+			if (triangleCount < FULLY_HASHED_TRIANGLE_COUNT || (triangleCount & (triangleCount - 1)) == 0) {
+				for (Vector3d vertex : triangle) {
+					hash = mix(hash, vertex);
+				}
+			}
+			triangleCount++;
+		}
+		return (hash ^ triangleCount) * FNV_PRIME;
+	}
+
+	private static long mix(long hash, Vector3d point) {
+		long mixed = (hash ^ Double.doubleToLongBits(point.getX())) * FNV_PRIME;
+		mixed = (mixed ^ Double.doubleToLongBits(point.getY())) * FNV_PRIME;
+		return (mixed ^ Double.doubleToLongBits(point.getZ())) * FNV_PRIME;
+	}
+}
@@ -0,0 +1,203 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.BiFunction;
+
+import com.solibri.geometry.primitive3d.AABB3d;
+import com.solibri.geometry.primitive3d.Segment3d;
+import com.solibri.smc.api.model.Component;
+
+/**
+ * Selects the target components to report for a source component by their
+ * maximum distance from the source. The maximum distance between two
+ * components is bounded by their bounding boxes: it is at most the distance
+ * between the farthest corners of the boxes, and at least the largest extent
+ * of the two boxes together along one axis, since the geometry touches every
+ * side of its bounding box. The exact distance is computed only for the
+ * targets whose bounds can still change the selection.
+ */
+final class DistancePartnerSelector {
+
+	private DistancePartnerSelector() {
+	}
+
+	/**
+	 * A target component with the longest segment between it and the source.
+	 */
+	static final class Partner {
+
+		final Component target;
+
+		final Segment3d segment;
+
+		Partner(Component target, Segment3d segment) {
+			this.target = target;
+			this.segment = segment;
+		}
+	}
+
+	/**
+	 * A target component with the bounds of its maximum distance from the
+	 * source.
+	 */
+	private static final class Candidate {
+
+		final Component target;
+
+		final double lowerBound;
+
+		final double upperBound;
+
+		Candidate(Component source, Component target) {
+			this.target = target;
+			AABB3d a = source.getBoundingBox();
+			AABB3d b = target.getBoundingBox();
+			double x = extent(a.getLowerBound().getX(), a.getUpperBound().getX(), b.getLowerBound().getX(),
+				b.getUpperBound().getX());
+			double y = extent(a.getLowerBound().getY(), a.getUpperBound().getY(), b.getLowerBound().getY(),
+				b.getUpperBound().getY());
+			double z = extent(a.getLowerBound().getZ(), a.getUpperBound().getZ(), b.getLowerBound().getZ(),
+				b.getUpperBound().getZ());
+			this.lowerBound = Math.max(x, Math.max(y, z));
+			this.upperBound = Math.sqrt(x * x + y * y + z * z);
+		}
+
+		/**
+		 * Returns the extent of two intervals together.
+		 */
+		private static double extent(double minA, double maxA, double minB, double maxB) {
+			return Math.max(maxA - minB, maxB - minA);
+		}
+	}
+
+	/**
+	 * Returns the given number of targets farthest from the source, the
+	 * farthest first.
+	 *
+	 * @param source the source component
+	 * @param targets the target components
+	 * @param count the number of targets to select
+	 * @param longestSegment the function computing the exact longest segment
+	 * @return the selected targets
+	 */
+	static List<Partner> farthest(Component source, Collection<Component> targets, int count,
+		BiFunction<Component, Component, Segment3d> longestSegment) {
+		if (count <= 0) {
+			return new ArrayList<>();
+		}
+		List<Candidate> candidates = candidates(source, targets);
+		candidates.sort(Comparator.comparingDouble((Candidate candidate) -> candidate.upperBound).reversed());
+
+		/*
+		 * The heap keeps the farthest targets found so far with the nearest of
+		 * them on top. Once the heap is full, a target whose upper bound does
+		 * not exceed the top can not be selected, and neither can any target
+		 * after it.
+		 */
+		PriorityQueue<Partner> selected = new PriorityQueue<>(
+			Comparator.comparingDouble((Partner partner) -> partner.segment.getLength()));
+		for (Candidate candidate : candidates) {
+			if (selected.size() >= count && candidate.upperBound <= selected.peek().segment.getLength()) {
+				break;
+			}
+			offer(selected, source, candidate.target, count, longestSegment);
+		}
+
+		List<Partner> partners = new ArrayList<>(selected);
+		partners.sort(Comparator.comparingDouble((Partner partner) -> partner.segment.getLength()).reversed());
+		return partners;
+	}
+
+	/**
+	 * Returns the given number of targets nearest to the source, the nearest
+	 * first. The maximum distance is used as the distance, as everywhere in
+	 * the rule.
+	 *
+	 * @param source the source component
+	 * @param targets the target components
+	 * @param count the number of targets to select
+	 * @param longestSegment the function computing the exact longest segment
+	 * @return the selected targets
+	 */
+	static List<Partner> nearest(Component source, Collection<Component> targets, int count,
+		BiFunction<Component, Component, Segment3d> longestSegment) {
+		if (count <= 0) {
+			return new ArrayList<>();
+		}
+		List<Candidate> candidates = candidates(source, targets);
+		candidates.sort(Comparator.comparingDouble((Candidate candidate) -> candidate.lowerBound));
+
+		/*
+		 * The heap keeps the nearest targets found so far with the farthest of
+		 * them on top. Once the heap is full, a target whose lower bound is
+		 * not below the top can not be selected, and neither can any target
+		 * after it.
+		 */
+		PriorityQueue<Partner> selected = new PriorityQueue<>(
+			Comparator.comparingDouble((Partner partner) -> partner.segment.getLength()).reversed());
+		for (Candidate candidate : candidates) {
+			if (selected.size() >= count && candidate.lowerBound >= selected.peek().segment.getLength()) {
+				break;
+			}
+			offer(selected, source, candidate.target, count, longestSegment);
+		}
+
+		List<Partner> partners = new ArrayList<>(selected);
+		partners.sort(Comparator.comparingDouble((Partner partner) -> partner.segment.getLength()));
+		return partners;
+	}
+
+	/**
+	 * Returns the targets whose maximum distance from the source exceeds the
+	 * threshold. The exact distance is not computed for the targets whose
+	 * upper bound does not exceed the threshold.
+	 *
+	 * @param source the source component
+	 * @param targets the target components
+	 * @param threshold the distance threshold
+	 * @param longestSegment the function computing the exact longest segment
+	 * @return the selected targets
+	 */
+	static List<Partner> beyondThreshold(Component source, Collection<Component> targets, double threshold,
+		BiFunction<Component, Component, Segment3d> longestSegment) {
+		List<Partner> partners = new ArrayList<>();
+		for (Candidate candidate : candidates(source, targets)) {
+			if (candidate.upperBound <= threshold) {
+				continue;
+			}
+			Segment3d segment = longestSegment.apply(source, candidate.target);
+			if (segment != null && segment.getLength() > threshold) {
+				partners.add(new Partner(candidate.target, segment));
+			}
+		}
+		return partners;
+	}
+
+	private static List<Candidate> candidates(Component source, Collection<Component> targets) {
+		List<Candidate> candidates = new ArrayList<>(targets.size());
+		for (Component target : targets) {
+			candidates.add(new Candidate(source, target));
+		}
+		return candidates;
+	}
+
+	/**
+	 * Computes the exact segment of a target and adds it to the heap, dropping
+	 * the top of the heap if it grows over the count.
+	 */
+	private static void offer(PriorityQueue<Partner> selected, Component source, Component target, int count,
+		BiFunction<Component, Component, Segment3d> longestSegment) {
+		Segment3d segment = longestSegment.apply(source, target);
+		if (segment == null) {
+			return;
+		}
+		selected.add(new Partner(target, segment));
+		if (selected.size() > count) {
+			selected.poll();
+		}
+	}
+}
@@ -1,17 +1,19 @@
 package com.solibri.smc.api.examples.beginner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
 import com.solibri.geometry.linearalgebra.Vector3d;
-import com.solibri.geometry.mesh.TriangleMesh;
 import com.solibri.geometry.primitive3d.Segment3d;
-import com.solibri.geometry.primitive3d.Triangle3d;
 import com.solibri.smc.api.SMC;
+import com.solibri.smc.api.checking.ComponentSelector;
 import com.solibri.smc.api.checking.DoubleParameter;
+import com.solibri.smc.api.checking.EnumerationParameter;
 import com.solibri.smc.api.checking.FilterParameter;
 import com.solibri.smc.api.checking.OneByOneRule;
+import com.solibri.smc.api.checking.PreCheckResult;
 import com.solibri.smc.api.checking.Result;
 import com.solibri.smc.api.checking.ResultFactory;
 import com.solibri.smc.api.checking.RuleParameters;
@@ -31,6 +33,19 @@ import com.solibri.smc.api.visualization.VisualizationItem;
  */
 public final class DistanceVisualizationRule extends OneByOneRule {
 
+	static final String REPORTING_MODE_ALL = "rpReportingMode.ALL";
+
+	static final String REPORTING_MODE_FARTHEST = "rpReportingMode.FARTHEST";
+
+	static final String REPORTING_MODE_NEAREST = "rpReportingMode.NEAREST";
+
+	static final String REPORTING_MODE_BEYOND_THRESHOLD = "rpReportingMode.BEYOND_THRESHOLD";
+
+	/**
+	 * The memory budget of the cached vertex buffers in megabytes.
+	 */
+	private static final int VERTEX_BUFFER_BUDGET_MB = 64;
+
 	/**
 	 * Retrieve the parameter creation handler, used to define parameters for
 	 * this rule.
@@ -48,11 +63,39 @@ public final class DistanceVisualizationRule extends OneByOneRule {
 
 	final DoubleParameter maximumDistance = params.createDouble("rpMaximumDistance", PropertyType.LENGTH);
 
+	/**
+	 * The reporting mode selects whether all the targets are reported, only a
+	 * number of the farthest or nearest targets of each source, or only the
+	 * targets farther than a threshold.
+	 */
+	final EnumerationParameter reportingMode = params.createEnumeration("rpReportingMode",
+		Arrays.asList(REPORTING_MODE_ALL, REPORTING_MODE_FARTHEST, REPORTING_MODE_NEAREST,
+			REPORTING_MODE_BEYOND_THRESHOLD));
+
+	final DoubleParameter partnerCount = params.createDouble("rpPartnerCount", PropertyType.INT);
+
+	final DoubleParameter distanceThreshold = params.createDouble("rpDistanceThreshold", PropertyType.LENGTH);
+
 	/**
 	 * Add the UI definition from class DistanceVisualizationRuleUIDefinition.
 	 */
 	private final DistanceVisualizationRuleUIDefinition uiDefinition = new DistanceVisualizationRuleUIDefinition(this);
 
+	/**
+	 * The convex hull vertices of the components, computed from the welded vertex buffers of their meshes. A
+	 * component is met in many pairs, so its mesh is read only once as long as its buffer stays in the cache.
+	 */
+	private final VertexBufferCache hullBuffers = new VertexBufferCache(VERTEX_BUFFER_BUDGET_MB, MeshConvexHull::of);
+
+	@Override
+	public PreCheckResult preCheck(ComponentSelector components) {
+		/*
+		 * The geometry may have changed since the previous run.
+		 */
+		hullBuffers.clear();
+		return super.preCheck(components);
+	}
+
 	@Override
 	public Collection<Result> check(Component component, ResultFactory resultFactory) {
 
@@ -65,14 +108,45 @@ public final class DistanceVisualizationRule extends OneByOneRule {
 
 		List<Result> results = new ArrayList<>();
 
-		// Check each component separately.
-		for (Component target : targets) {
-			results.add(distanceCheck(component, target, resultFactory));
+		String mode = reportingMode.getValue();
+		if (REPORTING_MODE_ALL.equals(mode)) {
+			// Check each component separately.
+			for (Component target : targets) {
+				results.add(distanceCheck(component, target, getLongestSegment(component, target), resultFactory));
+			}
+			return results;
+		}
+
+		// Report only the selected targets. The bounds of the distances are compared first, so that the exact
+		// distance is computed for as few targets as possible.
+		for (DistancePartnerSelector.Partner partner : selectPartners(component, targets, mode)) {
+			results.add(distanceCheck(component, partner.target, partner.segment, resultFactory));
 		}
 
 		return results;
 	}
 
+	/**
+	 * Selects the targets to report according to the reporting mode.
+	 *
+	 * @param component the source component
+	 * @param targets the target components within the maximum distance
+	 * @param mode the reporting mode
+	 * @return the selected targets with their longest segments
+	 */
+	private List<DistancePartnerSelector.Partner> selectPartners(Component component, Collection<Component> targets,
+		String mode) {
+		int count = (int) Math.round(partnerCount.getValue());
+		if (REPORTING_MODE_FARTHEST.equals(mode)) {
+			return DistancePartnerSelector.farthest(component, targets, count, this::getLongestSegment);
+		} else if (REPORTING_MODE_NEAREST.equals(mode)) {
+			return DistancePartnerSelector.nearest(component, targets, count, this::getLongestSegment);
+		} else {
+			return DistancePartnerSelector.beyondThreshold(component, targets, distanceThreshold.getValue(),
+				this::getLongestSegment);
+		}
+	}
+
 	@Override
 	public UIContainer getParametersUIDefinition() {
 		return uiDefinition.getDefinitionContainer();
@@ -88,46 +162,31 @@ public final class DistanceVisualizationRule extends OneByOneRule {
 	 */
 	private Segment3d getLongestSegment(Component component1, Component component2) {
 		/*
-		 * The triangles in component's geometry can be looped with the TriangleMesh used as an Iterable of triangles.
+		 * The farthest points of two components are always vertices of their convex hulls, so only the hull
+		 * vertices are compared. The segment is created only for the farthest pair.
 		 */
-		TriangleMesh sourceMesh = component1.getTriangleMesh();
-		TriangleMesh targetMesh = component2.getTriangleMesh();
-
-		Segment3d longestSegment = null;
-		for (Triangle3d sourceTriangle : sourceMesh) {
-			for (Triangle3d targetTriangle : targetMesh) {
-				Segment3d potentialLongestSegment = getLongestSegment(sourceTriangle, targetTriangle);
-				if (longestSegment == null || potentialLongestSegment.getLength() > longestSegment.getLength()) {
-					longestSegment = potentialLongestSegment;
-				}
-			}
+		double[] sourceHull = hullBuffers.get(component1);
+		double[] targetHull = hullBuffers.get(component2);
+		int[] farthestPair = MeshConvexHull.farthestPair(sourceHull, targetHull);
+		if (farthestPair == null) {
+			return null;
 		}
-		return longestSegment;
+		return Segment3d.create(vertex(sourceHull, farthestPair[0]), vertex(targetHull, farthestPair[1]));
 	}
 
 	/**
-	 * Returns the longest segment between two triangles.
+	 * Returns a vertex of a vertex buffer.
 	 *
-	 * @param triangle1 the first triangle
-	 * @param triangle2 the second triangle
-	 * @return the longest segment between any points of two triangles
+	 * @param buffer the vertex buffer
+	 * @param index the index of the vertex
+	 * @return the vertex
 	 */
-	private Segment3d getLongestSegment(Triangle3d triangle1, Triangle3d triangle2) {
-		Segment3d longestSegment = null;
-		for (Vector3d firstPoint : triangle1) {
-			for (Vector3d secondPoint : triangle2) {
-				double potentialDistance = firstPoint.distance(secondPoint);
-				if (longestSegment == null || potentialDistance > longestSegment.getLength()) {
-					longestSegment = Segment3d.create(firstPoint, secondPoint);
-				}
-			}
-		}
-		return longestSegment;
+	private static Vector3d vertex(double[] buffer, int index) {
+		return Vector3d.create(buffer[3 * index], buffer[3 * index + 1], buffer[3 * index + 2]);
 	}
 
-	private Result distanceCheck(Component source, Component target, ResultFactory results) {
-		Segment3d longestSegment = getLongestSegment(source, target);
-
+	private Result distanceCheck(Component source, Component target, Segment3d longestSegment,
+		ResultFactory results) {
 		String nameSource = source.getName();
 		String nameTarget = target.getName();
 		String distanceText = PropertyType.LENGTH.getFormat().format(longestSegment.getLength());
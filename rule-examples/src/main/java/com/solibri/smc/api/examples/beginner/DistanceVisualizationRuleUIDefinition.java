@@ -6,6 +6,7 @@ import com.solibri.smc.api.ui.UIComponent;
 import com.solibri.smc.api.ui.UIContainer;
 import com.solibri.smc.api.ui.UIContainerVertical;
 import com.solibri.smc.api.ui.UILabel;
+import com.solibri.smc.api.ui.UIRadioButtonPanelVertical;
 import com.solibri.smc.api.ui.UIRuleParameter;
 
 /**
@@ -77,6 +78,11 @@ class DistanceVisualizationRuleUIDefinition {
 		 */
 		uiContainer.addComponent(createMaximumDistanceFilterUIDefinition());
 
+		/*
+		 * Add the selection of the reported targets.
+		 */
+		uiContainer.addComponent(createReportingModeUIDefinition(resources));
+
 		return uiContainer;
 	}
 
@@ -100,4 +106,14 @@ class DistanceVisualizationRuleUIDefinition {
 
 		return uiContainer;
 	}
+
+	private UIComponent createReportingModeUIDefinition(RuleResources resources) {
+		UIContainer uiContainer = UIContainerVertical.create(resources.getString("rpReportingMode.NAME"),
+			BorderType.LINE);
+		uiContainer.addComponent(UIRadioButtonPanelVertical.create(distanceVisualizationRule.reportingMode));
+		uiContainer.addComponent(UIRuleParameter.create(distanceVisualizationRule.partnerCount));
+		uiContainer.addComponent(UIRuleParameter.create(distanceVisualizationRule.distanceThreshold));
+
+		return uiContainer;
+	}
 }
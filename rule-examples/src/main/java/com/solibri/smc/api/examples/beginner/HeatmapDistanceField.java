@@ -0,0 +1,153 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Collection;
+
+/**
+ * Exact Euclidean distance transform of a raster, computed with the algorithm
+ * of Felzenszwalb and Huttenlocher. The squared distances are first computed
+ * along each column and then along each row, and both passes find the lower
+ * envelope of parabolas in linear time, so the whole transform is linear in
+ * the number of pixels.
+ *
+ * The pixels can be rectangular: the width and height of a pixel are taken
+ * into account in the row and column passes, so the distances are in world
+ * units.
+ */
+final class HeatmapDistanceField {
+
+	private HeatmapDistanceField() {
+	}
+
+	/**
+	 * Fills the given shapes into a mask. The pixels are stored row by row,
+	 * and the first pixel starts at the given world coordinates.
+	 *
+	 * @param shapes the shapes in world coordinates
+	 * @param minX the world x coordinate of the first pixel
+	 * @param minY the world y coordinate of the first pixel
+	 * @param width the width of the mask in pixels
+	 * @param height the height of the mask in pixels
+	 * @param pixelWidth the width of a pixel in world units
+	 * @param pixelHeight the height of a pixel in world units
+	 * @return the mask, where nonzero values are inside the shapes
+	 */
+	static byte[] rasterize(Collection<? extends Shape> shapes, double minX, double minY, int width, int height,
+		double pixelWidth, double pixelHeight) {
+		BufferedImage mask = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		AffineTransform affineTransform = new AffineTransform();
+		affineTransform.scale(1.0 / pixelWidth, 1.0 / pixelHeight);
+		affineTransform.translate(-minX, -minY);
+
+		Graphics2D graphics = mask.createGraphics();
+		graphics.setTransform(affineTransform);
+		graphics.setColor(Color.WHITE);
+		for (Shape shape : shapes) {
+			graphics.fill(shape);
+		}
+		graphics.dispose();
+
+		return ((DataBufferByte) mask.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * Computes the squared distance of each pixel to the nearest set pixel of
+	 * the mask. The pixels are stored row by row.
+	 *
+	 * @param mask the mask, where nonzero values are the set pixels
+	 * @param width the width of the raster in pixels
+	 * @param height the height of the raster in pixels
+	 * @param pixelWidth the width of a pixel in world units
+	 * @param pixelHeight the height of a pixel in world units
+	 * @return the squared distances to the nearest set pixel, or infinity if
+	 *         no pixel is set
+	 */
+	static double[] squaredDistances(byte[] mask, int width, int height, double pixelWidth,
+		double pixelHeight) {
+		double[] distances = new double[width * height];
+		for (int i = 0; i < distances.length; i++) {
+			distances[i] = mask[i] != 0 ? 0.0 : Double.POSITIVE_INFINITY;
+		}
+
+		int length = Math.max(width, height);
+		double[] values = new double[length];
+		double[] transformed = new double[length];
+		int[] vertices = new int[length];
+		double[] boundaries = new double[length + 1];
+
+		/*
+		 * Transform each column, then each row of the column distances.
+		 */
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				values[y] = distances[y * width + x];
+			}
+			transform(values, height, pixelHeight * pixelHeight, transformed, vertices, boundaries);
+			for (int y = 0; y < height; y++) {
+				distances[y * width + x] = transformed[y];
+			}
+		}
+		for (int y = 0; y < height; y++) {
+			System.arraycopy(distances, y * width, values, 0, width);
+			transform(values, width, pixelWidth * pixelWidth, transformed, vertices, boundaries);
+			System.arraycopy(transformed, 0, distances, y * width, width);
+		}
+		return distances;
+	}
+
+	/**
+	 * The one dimensional transform: for each position q, the minimum of
+	 * spacing * (q - p)^2 + values[p] over all positions p.
+	 */
+	private static void transform(double[] values, int length, double spacing, double[] transformed,
+		int[] vertices, double[] boundaries) {
+		/*
+		 * Find the lower envelope of the parabolas rooted at the positions with
+		 * a finite value.
+		 */
+		int count = -1;
+		for (int q = 0; q < length; q++) {
+			if (values[q] == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			double intersection = Double.NEGATIVE_INFINITY;
+			while (count >= 0) {
+				int p = vertices[count];
+				intersection = ((values[q] + spacing * q * q) - (values[p] + spacing * p * p))
+					/ (2.0 * spacing * (q - p));
+				if (intersection > boundaries[count]) {
+					break;
+				}
+				count--;
+			}
+			count++;
+			vertices[count] = q;
+			boundaries[count] = count == 0 ? Double.NEGATIVE_INFINITY : intersection;
+			boundaries[count + 1] = Double.POSITIVE_INFINITY;
+		}
+
+		if (count < 0) {
+			for (int q = 0; q < length; q++) {
+				transformed[q] = Double.POSITIVE_INFINITY;
+			}
+			return;
+		}
+
+		/*
+		 * Read the envelope at each position.
+		 */
+		int k = 0;
+		for (int q = 0; q < length; q++) {
+			while (boundaries[k + 1] < q) {
+				k++;
+			}
+			int p = vertices[k];
+			transformed[q] = spacing * (q - p) * (q - p) + values[p];
+		}
+	}
+}
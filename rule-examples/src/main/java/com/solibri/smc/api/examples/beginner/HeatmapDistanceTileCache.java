@@ -0,0 +1,194 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.awt.Shape;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.function.Function;
+
+import com.solibri.geometry.primitive2d.AABB2d;
+import com.solibri.smc.api.model.Component;
+
+/**
+ * A cache of the distance fields of the heatmap effect-sources. The same
+ * effect-source is usually within the range of several components, for
+ * example a radiator next to a wall between two spaces, so its distance field
+ * is computed once in world coordinates and then sampled by every component
+ * around it.
+ *
+ * Each tile covers the footprint of one source extended by the range, so the
+ * tiles of a source stay on the storey of the source. The tiles are keyed by
+ * the GUID of the source and the range, and they can be used from several
+ * checking threads at the same time. The tiles are held by soft references
+ * like the heatmaps sampled from them, so the memory is spent only on the
+ * results that are opened and can be freed again when it runs low.
+ */
+final class HeatmapDistanceTileCache {
+
+	private final double pixelsPerMetre;
+
+	private final int maxResolution;
+
+	private final Function<Component, Shape> shapeFunction;
+
+	private final SoftValueCache<TileKey, Tile> tiles = new SoftValueCache<>();
+
+	/**
+	 * Creates a cache with the given resolution of the tiles.
+	 *
+	 * @param pixelsPerMetre the resolution of the tiles in pixels per metre
+	 * @param maxResolution the maximum resolution of a tile along one side,
+	 *            the resolution of larger tiles is lowered to fit it
+	 * @param shapeFunction the function returning the footprint shape of a
+	 *            source in world coordinates
+	 */
+	HeatmapDistanceTileCache(double pixelsPerMetre, int maxResolution, Function<Component, Shape> shapeFunction) {
+		this.pixelsPerMetre = pixelsPerMetre;
+		this.maxResolution = maxResolution;
+		this.shapeFunction = shapeFunction;
+	}
+
+	/**
+	 * Returns the distance field tile of the given source, computing it if it
+	 * is not cached yet or if it has been freed.
+	 *
+	 * @param source the effect-source
+	 * @param range the range of the heatmap
+	 * @return the tile of the source
+	 */
+	Tile get(Component source, double range) {
+		return tiles.get(new TileKey(source.getGUID(), range), () -> createTile(source, range));
+	}
+
+	/**
+	 * Removes all the tiles from the cache.
+	 */
+	void clear() {
+		tiles.clear();
+	}
+
+	private Tile createTile(Component source, double range) {
+		Shape shape = shapeFunction.apply(source);
+		AABB2d bounds = source.getFootprint().getArea().getBoundingRectangle();
+		double minX = bounds.getLowerBound().getX() - range;
+		double minY = bounds.getLowerBound().getY() - range;
+		double sizeX = bounds.getSizeX() + 2.0 * range;
+		double sizeY = bounds.getSizeY() + 2.0 * range;
+
+		/*
+		 * The pixels are square, so that one tile can be sampled with any
+		 * resolution of the bitmaps.
+		 */
+		double pixelSize = Math.max(1.0 / pixelsPerMetre, Math.max(sizeX, sizeY) / maxResolution);
+		int width = Math.max(1, (int) Math.ceil(sizeX / pixelSize));
+		int height = Math.max(1, (int) Math.ceil(sizeY / pixelSize));
+
+		byte[] mask = HeatmapDistanceField.rasterize(Collections.singletonList(shape), minX, minY, width, height,
+			pixelSize, pixelSize);
+		double[] squaredDistances = HeatmapDistanceField.squaredDistances(mask, width, height, pixelSize,
+			pixelSize);
+		float[] distances = new float[squaredDistances.length];
+		for (int i = 0; i < distances.length; i++) {
+			distances[i] = (float) squaredDistances[i];
+		}
+		return new Tile(minX, minY, pixelSize, width, height, distances);
+	}
+
+	/**
+	 * The squared distances to one effect-source over its footprint extended
+	 * by the range.
+	 */
+	static final class Tile {
+
+		private final double minX;
+
+		private final double minY;
+
+		private final double pixelSize;
+
+		private final int width;
+
+		private final int height;
+
+		private final float[] squaredDistances;
+
+		private Tile(double minX, double minY, double pixelSize, int width, int height, float[] squaredDistances) {
+			this.minX = minX;
+			this.minY = minY;
+			this.pixelSize = pixelSize;
+			this.width = width;
+			this.height = height;
+			this.squaredDistances = squaredDistances;
+		}
+
+		/**
+		 * Lowers the squared distances of a bitmap to the squared distances of
+		 * this tile at the centers of the bitmap pixels. Only the pixels
+		 * covered by the tile are visited, the others are beyond the range of
+		 * the source.
+		 *
+		 * @param distances the squared distances of the bitmap, row by row
+		 * @param originX the world x coordinate of the first bitmap pixel
+		 * @param originY the world y coordinate of the first bitmap pixel
+		 * @param bitmapWidth the width of the bitmap in pixels
+		 * @param bitmapHeight the height of the bitmap in pixels
+		 * @param pixelWidth the width of a bitmap pixel in world units
+		 * @param pixelHeight the height of a bitmap pixel in world units
+		 */
+		void sampleMinimum(double[] distances, double originX, double originY, int bitmapWidth, int bitmapHeight,
+			double pixelWidth, double pixelHeight) {
+			int firstColumn = Math.max(0, (int) Math.floor((minX - originX) / pixelWidth));
+			int lastColumn = Math.min(bitmapWidth - 1,
+				(int) Math.ceil((minX + width * pixelSize - originX) / pixelWidth));
+			int firstRow = Math.max(0, (int) Math.floor((minY - originY) / pixelHeight));
+			int lastRow = Math.min(bitmapHeight - 1,
+				(int) Math.ceil((minY + height * pixelSize - originY) / pixelHeight));
+
+			for (int row = firstRow; row <= lastRow; row++) {
+				int tileY = (int) Math.floor((originY + (row + 0.5) * pixelHeight - minY) / pixelSize);
+				if (tileY < 0 || tileY >= height) {
+					continue;
+				}
+				for (int column = firstColumn; column <= lastColumn; column++) {
+					int tileX = (int) Math.floor((originX + (column + 0.5) * pixelWidth - minX) / pixelSize);
+					if (tileX < 0 || tileX >= width) {
+						continue;
+					}
+					int pixel = row * bitmapWidth + column;
+					distances[pixel] = Math.min(distances[pixel], squaredDistances[tileY * width + tileX]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The GUID of a source and the range of the heatmap.
+	 */
+	private static final class TileKey {
+
+		private final String guid;
+
+		private final double range;
+
+		TileKey(String guid, double range) {
+			this.guid = guid;
+			this.range = range;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof TileKey)) {
+				return false;
+			}
+			TileKey other = (TileKey) object;
+			return guid.equals(other.guid) && Double.compare(range, other.range) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(guid, range);
+		}
+	}
+}
@@ -1,14 +1,13 @@
 package com.solibri.smc.api.examples.beginner;
 
-import java.awt.AlphaComposite;
-import java.awt.BasicStroke;
 import java.awt.Color;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
 import java.awt.Shape;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -19,12 +18,16 @@ import com.solibri.geometry.linearalgebra.Vector3d;
 import com.solibri.geometry.primitive2d.AABB2d;
 import com.solibri.geometry.primitive2d.Area;
 import com.solibri.geometry.primitive2d.MAABB2d;
+import com.solibri.geometry.primitive2d.MArea;
 import com.solibri.geometry.primitive2d.Polygon2d;
 import com.solibri.geometry.primitive3d.AABB3d;
 import com.solibri.smc.api.SMC;
+import com.solibri.smc.api.checking.ComponentSelector;
 import com.solibri.smc.api.checking.DoubleParameter;
+import com.solibri.smc.api.checking.EnumerationParameter;
 import com.solibri.smc.api.checking.FilterParameter;
 import com.solibri.smc.api.checking.OneByOneRule;
+import com.solibri.smc.api.checking.PreCheckResult;
 import com.solibri.smc.api.checking.Result;
 import com.solibri.smc.api.checking.ResultFactory;
 import com.solibri.smc.api.checking.RuleParameters;
@@ -34,28 +37,56 @@ import com.solibri.smc.api.filter.ComponentFilter;
 import com.solibri.smc.api.model.Component;
 import com.solibri.smc.api.model.PropertyType;
 import com.solibri.smc.api.ui.UIContainer;
+import com.solibri.smc.api.visualization.ARGBColor;
 import com.solibri.smc.api.visualization.Bitmap;
+import com.solibri.smc.api.visualization.VisualizationItem;
 
 /**
  * Example rule template that uses Bitmap visualization to visualize heatmap.
  */
 public class HeatmapVisualizationRule extends OneByOneRule {
 
+	static final String OUTPUT_MODE_BITMAP = "rpOutputMode.BITMAP";
+
+	static final String OUTPUT_MODE_ISOBANDS = "rpOutputMode.ISOBANDS";
+
 	/**
 	 * Light blue color for heatmap visualization.
 	 */
 	private static final Color VISUALIZATION_COLOR = new Color(100, 100, 255);
 
 	/**
-	 * Resolution of the bitmap.
+	 * Target resolution of the bitmap in pixels per metre of the footprint.
+	 */
+	private static final double PIXELS_PER_METRE = 20.0;
+
+	/**
+	 * Minimum resolution of the bitmap along one side.
 	 */
-	private static final int BITMAP_RESOLUTION = 1600;
+	private static final int MIN_BITMAP_RESOLUTION = 32;
+
+	/**
+	 * Maximum resolution of the bitmap along one side.
+	 */
+	private static final int MAX_BITMAP_RESOLUTION = 1600;
+
+	/**
+	 * The colors of the bitmap: the visualization color with every alpha
+	 * value, so that one byte per pixel is enough.
+	 */
+	private static final IndexColorModel HEATMAP_COLOR_MODEL = createHeatmapColorModel();
 
 	/**
 	 * Maximum number of the heatmap color steps used.
 	 */
 	private static final int STEP_LIMIT = 50;
 
+	/**
+	 * The height of the heatmap above the bottom of the component, so that it
+	 * is not hidden by the floor.
+	 */
+	private static final double Z_OFFSET_TO_AVOID_OVERLAPPING = 0.03;
+
 	/**
 	 * Retrieve the parameter creation handler, used to define parameters for
 	 * this rule.
@@ -88,11 +119,41 @@ public class HeatmapVisualizationRule extends OneByOneRule {
 	 */
 	final DoubleParameter rpStepParameter = params.createDouble("rpStep", PropertyType.LENGTH);
 
+	/**
+	 * The output mode selects whether the heatmap is visualized as a bitmap
+	 * or as vector areas of the range and the steps.
+	 */
+	final EnumerationParameter rpOutputModeParameter = params.createEnumeration("rpOutputMode",
+		Arrays.asList(OUTPUT_MODE_BITMAP, OUTPUT_MODE_ISOBANDS));
+
 	/**
 	 * Add the UI definition.
 	 */
 	private final HeatmapVisualizationRuleUIDefinition uiDefinition = new HeatmapVisualizationRuleUIDefinition(this);
 
+	/**
+	 * The heatmaps rendered for the results of the current run by the GUID of
+	 * the checked component. A heatmap is rendered only when its result is
+	 * visualized, and it is held by a soft reference, so that the memory is
+	 * spent only on the results that are opened and can be freed again when
+	 * the memory runs low.
+	 */
+	private final SoftValueCache<String, List<VisualizationItem>> renderedHeatmaps = new SoftValueCache<>();
+
+	/**
+	 * The distance fields of the effect-sources computed during the current
+	 * run, held by soft references as well.
+	 */
+	private final HeatmapDistanceTileCache distanceTiles = new HeatmapDistanceTileCache(PIXELS_PER_METRE,
+		MAX_BITMAP_RESOLUTION, this::createComponentShape);
+
+	@Override
+	public PreCheckResult preCheck(ComponentSelector components) {
+		renderedHeatmaps.clear();
+		distanceTiles.clear();
+		return super.preCheck(components);
+	}
+
 	/**
 	 * This method is called for every component that passes through the default filter
 	 *
@@ -125,14 +186,13 @@ public class HeatmapVisualizationRule extends OneByOneRule {
 		}
 
 		/*
-		 * Create the bitmap that contains the heatmap.
-		 */
-		Bitmap bitmap = createBitmapVisualization(component, componentsInRange);
-
-		/*
-		 * Create the result.
+		 * Create the result. The heatmap is created only when the result is
+		 * visualized, so only the inputs of the heatmap are stored in the
+		 * result.
 		 */
-		Result result = createResult(component, componentsInRange, bitmap, resultFactory);
+		double step = rpStepParameter.getValue();
+		boolean isobands = OUTPUT_MODE_ISOBANDS.equals(rpOutputModeParameter.getValue());
+		Result result = createResult(component, componentsInRange, range, step, isobands, resultFactory);
 
 		/*
 		 * Return the one result created for this component.
@@ -140,8 +200,8 @@ public class HeatmapVisualizationRule extends OneByOneRule {
 		return Collections.singleton(result);
 	}
 
-	private Result createResult(Component component, Collection<Component> componentsInRange, Bitmap bitmap,
-		ResultFactory resultFactory) {
+	private Result createResult(Component component, Collection<Component> componentsInRange, double range,
+		double step, boolean isobands, ResultFactory resultFactory) {
 
 		/*
 		 * Create the name and description for this result.
@@ -168,9 +228,10 @@ public class HeatmapVisualizationRule extends OneByOneRule {
 		 */
 		.withVisualization(visualization -> {
 			/*
-			 * Add the bitmap to the visualization of the result.
+			 * Add the heatmap to the visualization of the result.
 			 */
-			visualization.addVisualizationItem(bitmap);
+			visualization.addVisualizationItems(
+				getHeatmapVisualization(component, componentsInRange, range, step, isobands));
 
 			/*
 			 * Add the component with 75% transparency to the visualization of the
@@ -214,26 +275,113 @@ public class HeatmapVisualizationRule extends OneByOneRule {
 		return resultDescription.toString();
 	}
 
-	private Bitmap createBitmapVisualization(Component component, Collection<Component> componentsInRange) {
+	/**
+	 * Returns the rendered heatmap of the component, rendering it again if it
+	 * has not been rendered yet or if it has been freed.
+	 */
+	private List<VisualizationItem> getHeatmapVisualization(Component component,
+		Collection<Component> componentsInRange, double range, double step, boolean isobands) {
+		return renderedHeatmaps.get(component.getGUID(), () -> isobands
+			? createIsobandVisualization(component, componentsInRange, range, step)
+			: Collections.singletonList(createBitmapVisualization(component, componentsInRange, range, step)));
+	}
+
+	/**
+	 * Creates the heatmap as vector areas. The footprints of the
+	 * effect-sources are united once, and the union is then offset by the
+	 * range and by each step and clipped to the footprint of the component.
+	 * The areas are drawn over each other with the same translucent color, so
+	 * the heatmap gets more opaque towards the sources like the bitmap does.
+	 */
+	private List<VisualizationItem> createIsobandVisualization(Component component,
+		Collection<Component> componentsInRange, double range, double step) {
+		MArea sources = MArea.create();
+		for (Component source : componentsInRange) {
+			sources.add(source.getFootprint().getArea());
+		}
+		Area componentArea = component.getFootprint().getArea();
+
+		int stepsCount = calculateStepsCount(range, step);
+		List<Double> offsets = new ArrayList<>();
+		offsets.add(range);
+		for (int i = 1; i <= stepsCount; i++) {
+			offsets.add(i * step);
+		}
+
+		double bandAlpha = calculateBandAlpha(stepsCount);
+		ARGBColor bandColor = ARGBColor.create(VISUALIZATION_COLOR.getRed(), VISUALIZATION_COLOR.getGreen(),
+			VISUALIZATION_COLOR.getBlue(), (int) Math.round(255.0 * bandAlpha));
+		double elevation = component.getBoundingBox().getLowerBound().getZ() + Z_OFFSET_TO_AVOID_OVERLAPPING;
+
+		List<VisualizationItem> bands = new ArrayList<>();
+		for (double offset : offsets) {
+			MArea band = MArea.create(sources);
+			band.resize(offset, true);
+			band.intersect(componentArea);
+			if (!band.isEmpty()) {
+				bands.add(VisualizationItem.createArea(band, elevation).withColor(bandColor));
+			}
+		}
+		return bands;
+	}
+
+	private Bitmap createBitmapVisualization(Component component, Collection<Component> componentsInRange,
+		double range, double step) {
 		/*
-		 * Initialize the graphics based on the area of the component.
+		 * Initialize the raster based on the area of the component.
 		 */
 		Area area = component.getFootprint().getArea();
 		MAABB2d boundingRectangle = area.getBoundingRectangle();
-		int imageType = BufferedImage.TYPE_INT_ARGB;
-		BufferedImage image = new BufferedImage(BITMAP_RESOLUTION, BITMAP_RESOLUTION, imageType);
-		Graphics2D graphics = createImageGraphics(image, boundingRectangle);
-		graphics.setClip(createComponentShape(component));
+		int[] resolution = calculateBitmapResolution(boundingRectangle);
+		int width = resolution[0];
+		int height = resolution[1];
+		double pixelWidth = boundingRectangle.getSizeX() / width;
+		double pixelHeight = boundingRectangle.getSizeY() / height;
+
+		/*
+		 * The heatmap is only shown inside the footprint of the component.
+		 */
+		Vector2d origin = boundingRectangle.getLowerBound();
+		Shape componentShape = createComponentShape(component);
+		byte[] componentMask = HeatmapDistanceField.rasterize(Collections.singletonList(componentShape),
+			origin.getX(), origin.getY(), width, height, pixelWidth, pixelHeight);
 
 		/*
-		 * Draw the heatmap and effect-source into 2D-graphics for each component
-		 * in the range.
+		 * Take the distance of every pixel to the nearest effect-source from
+		 * the distance fields of the sources in range. The field of a source is
+		 * computed once and shared by all the components around it. The
+		 * distances are then turned into the alpha values of the heatmap steps
+		 * in one pass. The heatmap has only one color, so only the alpha is
+		 * stored, and it is shown as the alpha of the visualization color
+		 * through the indexed color model.
 		 */
-		for (Component entityInRange : componentsInRange) {
-			Shape shape = createComponentShape(entityInRange);
-			drawHeatmap2D(graphics, rpRangeParameter.getValue(), rpStepParameter.getValue(), shape);
-			drawEffectSource2D(graphics, shape);
+		double[] squaredDistances = new double[width * height];
+		Arrays.fill(squaredDistances, Double.POSITIVE_INFINITY);
+		for (Component source : componentsInRange) {
+			distanceTiles.get(source, range).sampleMinimum(squaredDistances, origin.getX(), origin.getY(), width,
+				height, pixelWidth, pixelHeight);
 		}
+		int stepsCount = calculateStepsCount(range, step);
+		byte[] alphaLookupTable = createAlphaLookupTable(stepsCount, calculateBandAlpha(stepsCount));
+
+		BufferedImage alphaImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		byte[] alphas = ((DataBufferByte) alphaImage.getRaster().getDataBuffer()).getData();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int pixel = y * width + x;
+				if (componentMask[pixel] == 0) {
+					continue;
+				}
+				double squaredDistance = squaredDistances[pixel];
+				if (squaredDistance == 0.0) {
+					alphas[pixel] = (byte) 255;
+				} else {
+					int bands = countCoveringBands(Math.sqrt(squaredDistance), range, step, stepsCount);
+					alphas[pixel] = alphaLookupTable[bands];
+				}
+			}
+		}
+		BufferedImage image = new BufferedImage(HEATMAP_COLOR_MODEL, alphaImage.getRaster(), false, null);
 
 		/*
 		 * This method returns the minimum size axis-aligned bounding box of the
@@ -246,82 +394,87 @@ public class HeatmapVisualizationRule extends OneByOneRule {
 		 * items.
 		 */
 		MVector3d location = boundingRectangle.getCentroid().to3dVector();
-		double zOffsetToAvoidOverlapping = 0.03;
-		location.setZ(componentBounds.getLowerBound().getZ() + zOffsetToAvoidOverlapping);
+		location.setZ(componentBounds.getLowerBound().getZ() + Z_OFFSET_TO_AVOID_OVERLAPPING);
 		double bitmapWidth = boundingRectangle.getSizeX();
 		double bitmapHeight = boundingRectangle.getSizeY();
 
 		return Bitmap.create(image, Vector3d.UNIT_Z, Vector3d.UNIT_Y, location, bitmapWidth, bitmapHeight);
 	}
 
-	private static AffineTransform createWorldToImageTransformation(AABB2d boundingRectangle) {
-		AffineTransform affineTransform = new AffineTransform();
-		double scaleX = BITMAP_RESOLUTION / boundingRectangle.getSizeX();
-		double scaleY = BITMAP_RESOLUTION / boundingRectangle.getSizeY();
-		affineTransform.scale(scaleX, scaleY);
-		Vector2d offset = boundingRectangle.getLowerBound();
-		double offsetX = -offset.getX();
-		double offsetY = -offset.getY();
-		affineTransform.translate(offsetX, offsetY);
-
-		return affineTransform;
+	/**
+	 * Calculates the resolution of the bitmap from the size of the footprint.
+	 *
+	 * @param boundingRectangle the bounding rectangle of the footprint
+	 * @return the width and height of the bitmap in pixels
+	 */
+	private static int[] calculateBitmapResolution(AABB2d boundingRectangle) {
+		int width = clampResolution(boundingRectangle.getSizeX() * PIXELS_PER_METRE);
+		int height = clampResolution(boundingRectangle.getSizeY() * PIXELS_PER_METRE);
+		return new int[] { width, height };
 	}
 
-	private static Graphics2D createImageGraphics(BufferedImage image, MAABB2d boundingRectangle) {
-		AffineTransform affineTransform = createWorldToImageTransformation(boundingRectangle);
-		Graphics2D graphics = image.createGraphics();
-		graphics.setTransform(affineTransform);
-		graphics.setColor(VISUALIZATION_COLOR);
-		graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+	private static int clampResolution(double resolution) {
+		return (int) Math.max(MIN_BITMAP_RESOLUTION, Math.min(MAX_BITMAP_RESOLUTION, Math.ceil(resolution)));
+	}
 
-		return graphics;
+	private static IndexColorModel createHeatmapColorModel() {
+		int size = 256;
+		byte[] reds = new byte[size];
+		byte[] greens = new byte[size];
+		byte[] blues = new byte[size];
+		byte[] alphas = new byte[size];
+		for (int i = 0; i < size; i++) {
+			reds[i] = (byte) VISUALIZATION_COLOR.getRed();
+			greens[i] = (byte) VISUALIZATION_COLOR.getGreen();
+			blues[i] = (byte) VISUALIZATION_COLOR.getBlue();
+			alphas[i] = (byte) i;
+		}
+		return new IndexColorModel(8, size, reds, greens, blues, alphas);
 	}
 
-	private static void drawHeatmap2D(Graphics2D imageGraphics, double range, double step, Shape shape) {
+	/**
+	 * Returns the number of the steps drawn, or zero if the steps are not
+	 * drawn because they are not shorter than the range or there would be
+	 * too many of them.
+	 */
+	private static int calculateStepsCount(double range, double step) {
 		boolean drawSteps = step < range && step > 0 && (range / step) < STEP_LIMIT;
-		int stepsCount = drawSteps ? (int) Math.floor(range / step) : 0;
-		float alpha = drawSteps ? 1f / (stepsCount + 1) : 0.25f;
-		setAlphaComposite(imageGraphics, alpha);
-
-		/*
-		 * Draw heatmap from the edge of the source component to the distance of
-		 * given range.
-		 */
-		drawShapeWithOffset(imageGraphics, shape, (float) range);
-
-		/*
-		 * Draw the heatmap steps if needed. Draw the steps from the edge of the
-		 * source component. Steps divides the drawn heatmap range area to
-		 * multiple slices (steps).
-		 */
-		if (drawSteps) {
-			for (int i = 1; i <= stepsCount; i++) {
-				float offset = (float) step * i;
-				drawShapeWithOffset(imageGraphics, shape, offset);
-			}
-		}
+		return drawSteps ? (int) Math.floor(range / step) : 0;
 	}
 
-	private static void drawEffectSource2D(Graphics2D graphics, Shape shape) {
-		setAlphaComposite(graphics, 1f);
-		graphics.fill(shape);
-		drawShapeWithOffset(graphics, shape, 0.0f);
+	/**
+	 * Returns the alpha of one band. With steps, the alpha is divided between
+	 * the range and the steps.
+	 */
+	private static double calculateBandAlpha(int stepsCount) {
+		return stepsCount > 0 ? 1.0 / (stepsCount + 1) : 0.25;
 	}
 
-	private static void setAlphaComposite(Graphics2D graphics, float alpha) {
-		graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+	/**
+	 * Returns the number of heatmap bands covering a point at the given
+	 * distance from the nearest effect-source. The whole range is one band,
+	 * and each step is a band from the source to the distance of the step.
+	 */
+	private static int countCoveringBands(double distance, double range, double step, int stepsCount) {
+		int bands = distance <= range ? 1 : 0;
+		if (stepsCount > 0) {
+			int firstCoveringStep = (int) Math.max(1, Math.ceil(distance / step));
+			bands += Math.max(0, stepsCount - firstCoveringStep + 1);
+		}
+		return bands;
 	}
 
-	private static void drawShapeWithOffset(Graphics2D graphics, Shape shape, float offset) {
-		/*
-		 * Increase the size of the shape with amount of offset-value. This is
-		 * done by increasing the line thickness. The line thickness is twice
-		 * the offset because it effects on both sides from the line.
-		 */
-		float edgeThickness = 2.0f * offset;
-		graphics.setStroke(new BasicStroke(edgeThickness, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
-			0.0f, null, 0.0f));
-		graphics.draw(shape);
+	/**
+	 * Returns the alpha values by the number of covering bands. The bands are
+	 * blended over each other with the same alpha, so the alpha grows with
+	 * each band covering the pixel.
+	 */
+	private static byte[] createAlphaLookupTable(int stepsCount, double bandAlpha) {
+		byte[] alphaLookupTable = new byte[stepsCount + 2];
+		for (int bands = 0; bands < alphaLookupTable.length; bands++) {
+			alphaLookupTable[bands] = (byte) Math.round(255.0 * (1.0 - Math.pow(1.0 - bandAlpha, bands)));
+		}
+		return alphaLookupTable;
 	}
 
 	private Shape createComponentShape(Component component) {
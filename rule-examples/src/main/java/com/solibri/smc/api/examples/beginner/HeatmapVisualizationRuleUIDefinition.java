@@ -8,6 +8,7 @@ import com.solibri.smc.api.ui.UIContainerHorizontal;
 import com.solibri.smc.api.ui.UIContainerVertical;
 import com.solibri.smc.api.ui.UIImage;
 import com.solibri.smc.api.ui.UILabel;
+import com.solibri.smc.api.ui.UIRadioButtonPanelVertical;
 import com.solibri.smc.api.ui.UIRuleParameter;
 
 /**
@@ -126,6 +127,7 @@ class HeatmapVisualizationRuleUIDefinition {
 
 		uiContainer.addComponent(UIRuleParameter.create(heatmapVisualizationRule.rpRangeParameter));
 		uiContainer.addComponent(UIRuleParameter.create(heatmapVisualizationRule.rpStepParameter));
+		uiContainer.addComponent(UIRadioButtonPanelVertical.create(heatmapVisualizationRule.rpOutputModeParameter));
 
 		return uiContainer;
 	}
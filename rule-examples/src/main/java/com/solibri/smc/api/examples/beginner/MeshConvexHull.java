@@ -0,0 +1,325 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Computes the vertices of the convex hull of a vertex buffer. The largest
+ * distance between two point sets is always found between vertices of their
+ * convex hulls, so the farthest points of two components can be searched from
+ * the hull vertices only instead of all the vertices of the meshes.
+ *
+ * The hull is built incrementally: starting from a tetrahedron, each point
+ * outside the current hull replaces the faces it can see with new faces
+ * connecting the point to the horizon of the visible faces. If the points are
+ * on one plane or otherwise degenerate, all of them are kept, which gives the
+ * same farthest points at a higher cost.
+ *
+ * The vertex buffers hold the x, y and z coordinates of each vertex.
+ */
+final class MeshConvexHull {
+
+	/**
+	 * The tolerance of the plane tests relative to the size of the mesh.
+	 */
+	private static final double RELATIVE_EPSILON = 1e-10;
+
+	private MeshConvexHull() {
+	}
+
+	/**
+	 * Returns the vertex buffer of the convex hull vertices of the given
+	 * vertex buffer.
+	 *
+	 * @param coordinates the vertex buffer
+	 * @return the vertex buffer of the hull vertices
+	 */
+	static double[] of(double[] coordinates) {
+		return new HullBuilder(coordinates).build();
+	}
+
+	/**
+	 * Returns the indices of the vertices of the two vertex buffers farthest
+	 * from each other.
+	 *
+	 * @param first the first vertex buffer
+	 * @param second the second vertex buffer
+	 * @return the index of the vertex of the first buffer and the index of the
+	 *         vertex of the second buffer, or null if either buffer is empty
+	 */
+	static int[] farthestPair(double[] first, double[] second) {
+		int bestFirst = -1;
+		int bestSecond = -1;
+		double bestDistanceSquared = -1.0;
+		for (int i = 0; i < first.length; i += 3) {
+			double x = first[i];
+			double y = first[i + 1];
+			double z = first[i + 2];
+			for (int j = 0; j < second.length; j += 3) {
+				double dx = x - second[j];
+				double dy = y - second[j + 1];
+				double dz = z - second[j + 2];
+				double distanceSquared = dx * dx + dy * dy + dz * dz;
+				if (distanceSquared > bestDistanceSquared) {
+					bestDistanceSquared = distanceSquared;
+					bestFirst = i / 3;
+					bestSecond = j / 3;
+				}
+			}
+		}
+		return bestFirst < 0 ? null : new int[] { bestFirst, bestSecond };
+	}
+
+	/**
+	 * The incremental hull construction. The faces are kept counter-clockwise
+	 * when seen from outside, with their outward plane stored for the
+	 * visibility tests.
+	 */
+	private static final class HullBuilder {
+
+		private final int size;
+
+		private final double[] xs;
+
+		private final double[] ys;
+
+		private final double[] zs;
+
+		private final List<int[]> faces = new ArrayList<>();
+
+		private final List<double[]> planes = new ArrayList<>();
+
+		private double epsilon;
+
+		HullBuilder(double[] coordinates) {
+			size = coordinates.length / 3;
+			xs = new double[size];
+			ys = new double[size];
+			zs = new double[size];
+			for (int i = 0; i < size; i++) {
+				xs[i] = coordinates[3 * i];
+				ys[i] = coordinates[3 * i + 1];
+				zs[i] = coordinates[3 * i + 2];
+			}
+		}
+
+		double[] build() {
+			int[] tetrahedron = findInitialTetrahedron();
+			if (tetrahedron == null) {
+				return vertexBuffer(null, size);
+			}
+
+			/*
+			 * Orient the faces of the tetrahedron so that the fourth vertex of
+			 * each face is behind it.
+			 */
+			int[][] tetrahedronFaces = { { 0, 1, 2, 3 }, { 0, 3, 1, 2 }, { 0, 2, 3, 1 }, { 1, 3, 2, 0 } };
+			for (int[] face : tetrahedronFaces) {
+				int a = tetrahedron[face[0]];
+				int b = tetrahedron[face[1]];
+				int c = tetrahedron[face[2]];
+				double[] plane = plane(a, b, c);
+				if (distance(plane, tetrahedron[face[3]]) > 0.0) {
+					addFace(a, c, b);
+				} else {
+					addFace(a, b, c);
+				}
+			}
+
+			for (int point = 0; point < size; point++) {
+				addPoint(point);
+			}
+
+			boolean[] onHull = new boolean[size];
+			int hullSize = 0;
+			for (int[] face : faces) {
+				for (int vertex : face) {
+					if (!onHull[vertex]) {
+						onHull[vertex] = true;
+						hullSize++;
+					}
+				}
+			}
+			return vertexBuffer(onHull, hullSize);
+		}
+
+		/**
+		 * Returns the vertex buffer of the selected points, or of all the
+		 * points if no selection is given.
+		 */
+		private double[] vertexBuffer(boolean[] selected, int selectedCount) {
+			double[] buffer = new double[3 * selectedCount];
+			int i = 0;
+			for (int point = 0; point < size; point++) {
+				if (selected == null || selected[point]) {
+					buffer[i++] = xs[point];
+					buffer[i++] = ys[point];
+					buffer[i++] = zs[point];
+				}
+			}
+			return buffer;
+		}
+
+		/**
+		 * Finds four points that span a tetrahedron, or returns null if all the
+		 * points are on the same plane.
+		 */
+		private int[] findInitialTetrahedron() {
+			if (size < 4) {
+				return null;
+			}
+
+			double extent = 0.0;
+			int p0 = 0;
+			for (int i = 1; i < size; i++) {
+				if (xs[i] < xs[p0]) {
+					p0 = i;
+				}
+				extent = Math.max(extent, Math.abs(xs[i] - xs[0]) + Math.abs(ys[i] - ys[0]) + Math.abs(zs[i] - zs[0]));
+			}
+			epsilon = RELATIVE_EPSILON * Math.max(extent, 1.0);
+
+			int p1 = -1;
+			double best = epsilon;
+			for (int i = 0; i < size; i++) {
+				double d = squaredDistance(p0, i);
+				if (d > best * best) {
+					best = Math.sqrt(d);
+					p1 = i;
+				}
+			}
+			if (p1 < 0) {
+				return null;
+			}
+
+			int p2 = -1;
+			best = epsilon;
+			for (int i = 0; i < size; i++) {
+				double[] cross = cross(p0, p1, i);
+				double d = Math.sqrt(cross[0] * cross[0] + cross[1] * cross[1] + cross[2] * cross[2]);
+				if (d > best) {
+					best = d;
+					p2 = i;
+				}
+			}
+			if (p2 < 0) {
+				return null;
+			}
+
+			double[] plane = plane(p0, p1, p2);
+			int p3 = -1;
+			best = epsilon;
+			for (int i = 0; i < size; i++) {
+				double d = Math.abs(distance(plane, i));
+				if (d > best) {
+					best = d;
+					p3 = i;
+				}
+			}
+			if (p3 < 0) {
+				return null;
+			}
+			return new int[] { p0, p1, p2, p3 };
+		}
+
+		/**
+		 * Adds a point to the hull if it is outside of it.
+		 */
+		private void addPoint(int point) {
+			List<Integer> visibleFaces = new ArrayList<>();
+			for (int face = 0; face < faces.size(); face++) {
+				if (distance(planes.get(face), point) > epsilon) {
+					visibleFaces.add(face);
+				}
+			}
+			if (visibleFaces.isEmpty()) {
+				return;
+			}
+
+			/*
+			 * The horizon consists of the edges of the visible faces whose
+			 * reversed edge does not belong to another visible face.
+			 */
+			long pointCount = size;
+			Set<Long> visibleEdges = new HashSet<>();
+			for (int face : visibleFaces) {
+				int[] vertices = faces.get(face);
+				for (int i = 0; i < 3; i++) {
+					visibleEdges.add(vertices[i] * pointCount + vertices[(i + 1) % 3]);
+				}
+			}
+			List<int[]> horizon = new ArrayList<>();
+			for (int face : visibleFaces) {
+				int[] vertices = faces.get(face);
+				for (int i = 0; i < 3; i++) {
+					int from = vertices[i];
+					int to = vertices[(i + 1) % 3];
+					if (!visibleEdges.contains(to * pointCount + from)) {
+						horizon.add(new int[] { from, to });
+					}
+				}
+			}
+
+			for (int i = visibleFaces.size() - 1; i >= 0; i--) {
+				removeFace(visibleFaces.get(i));
+			}
+			for (int[] edge : horizon) {
+				addFace(edge[0], edge[1], point);
+			}
+		}
+
+		private void addFace(int a, int b, int c) {
+			faces.add(new int[] { a, b, c });
+			planes.add(plane(a, b, c));
+		}
+
+		/**
+		 * Removes a face by moving the last face in its place.
+		 */
+		private void removeFace(int face) {
+			int last = faces.size() - 1;
+			faces.set(face, faces.get(last));
+			planes.set(face, planes.get(last));
+			faces.remove(last);
+			planes.remove(last);
+		}
+
+		/**
+		 * Returns the unit normal and the offset of the plane of a triangle.
+		 */
+		private double[] plane(int a, int b, int c) {
+			double[] normal = cross(a, b, c);
+			double length = Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+			if (length > 0.0) {
+				normal[0] /= length;
+				normal[1] /= length;
+				normal[2] /= length;
+			}
+			double offset = normal[0] * xs[a] + normal[1] * ys[a] + normal[2] * zs[a];
+			return new double[] { normal[0], normal[1], normal[2], offset };
+		}
+
+		private double distance(double[] plane, int point) {
+			return plane[0] * xs[point] + plane[1] * ys[point] + plane[2] * zs[point] - plane[3];
+		}
+
+		private double[] cross(int a, int b, int c) {
+			double abx = xs[b] - xs[a];
+			double aby = ys[b] - ys[a];
+			double abz = zs[b] - zs[a];
+			double acx = xs[c] - xs[a];
+			double acy = ys[c] - ys[a];
+			double acz = zs[c] - zs[a];
+			return new double[] { aby * acz - abz * acy, abz * acx - abx * acz, abx * acy - aby * acx };
+		}
+
+		private double squaredDistance(int a, int b) {
+			double dx = xs[a] - xs[b];
+			double dy = ys[a] - ys[b];
+			double dz = zs[a] - zs[b];
+			return dx * dx + dy * dy + dz * dz;
+		}
+	}
+}
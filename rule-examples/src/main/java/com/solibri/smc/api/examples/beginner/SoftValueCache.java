@@ -0,0 +1,77 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A cache whose values are held by soft references, so that they can be freed
+ * when the memory runs low. The entries of the freed values are removed from
+ * the cache the next time it is used, so the cache does not keep growing with
+ * keys whose values are gone.
+ *
+ * The cache can be used from several threads at the same time. A missing value
+ * is created outside the map, so creating a large value does not block the
+ * other threads.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class SoftValueCache<K, V> {
+
+	private final Map<K, ValueReference<K, V>> values = new ConcurrentHashMap<>();
+
+	private final ReferenceQueue<V> freedValues = new ReferenceQueue<>();
+
+	/**
+	 * Returns the value of the given key, creating it if it is not cached or
+	 * if it has been freed.
+	 *
+	 * @param key the key
+	 * @param valueSupplier creates the value if it is missing
+	 * @return the value
+	 */
+	V get(K key, Supplier<V> valueSupplier) {
+		removeFreedValues();
+		ValueReference<K, V> reference = values.get(key);
+		V value = reference != null ? reference.get() : null;
+		if (value == null) {
+			value = valueSupplier.get();
+			values.put(key, new ValueReference<>(key, value, freedValues));
+		}
+		return value;
+	}
+
+	/**
+	 * Removes all the values from the cache.
+	 */
+	void clear() {
+		values.clear();
+		removeFreedValues();
+	}
+
+	private void removeFreedValues() {
+		Reference<? extends V> reference;
+		while ((reference = freedValues.poll()) != null) {
+			ValueReference<?, ?> valueReference = (ValueReference<?, ?>) reference;
+			values.remove(valueReference.key, valueReference);
+		}
+	}
+
+	/**
+	 * A soft reference that knows the key of its value, so that the entry can
+	 * be removed once the value has been freed.
+	 */
+	private static final class ValueReference<K, V> extends SoftReference<V> {
+
+		private final K key;
+
+		ValueReference(K key, V value, ReferenceQueue<V> queue) {
+			super(value, queue);
+			this.key = key;
+		}
+	}
+}
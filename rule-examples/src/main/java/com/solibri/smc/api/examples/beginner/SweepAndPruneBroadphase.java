@@ -0,0 +1,247 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.solibri.geometry.linearalgebra.Vector3d;
+import com.solibri.geometry.primitive3d.AABB3d;
+import com.solibri.smc.api.model.Component;
+
+/**
+ * Broadphase that finds all source and target components with intersecting
+ * bounding boxes in one pass. The bounding boxes of both component sets are
+ * copied into primitive arrays, sorted along the axis where the boxes are
+ * spread the most, and swept so that only boxes overlapping on the sweep axis
+ * are tested against each other on the remaining two axes.
+ */
+final class SweepAndPruneBroadphase {
+
+	private static final int AXES = 3;
+
+	/**
+	 * The candidate targets of each source component.
+	 */
+	private final Map<Component, List<Component>> candidates;
+
+	private final long candidatePairCount;
+
+	private SweepAndPruneBroadphase(Map<Component, List<Component>> candidates, long candidatePairCount) {
+		this.candidates = candidates;
+		this.candidatePairCount = candidatePairCount;
+	}
+
+	/**
+	 * Runs the sweep over the given source and target components. A component
+	 * can belong to both sets, but it is never paired with itself.
+	 *
+	 * @param sources the source components
+	 * @param targets the target components
+	 * @return the broadphase holding the candidate targets of each source
+	 */
+	static SweepAndPruneBroadphase of(Collection<Component> sources, Collection<Component> targets) {
+		return of(sources, targets, 0.0);
+	}
+
+	/**
+	 * Runs the sweep over the given source and target components, pairing
+	 * also the components whose bounding boxes are not further apart than the
+	 * given margin on any axis.
+	 *
+	 * @param sources the source components
+	 * @param targets the target components
+	 * @param margin the largest gap allowed between paired bounding boxes
+	 * @return the broadphase holding the candidate targets of each source
+	 */
+	static SweepAndPruneBroadphase of(Collection<Component> sources, Collection<Component> targets,
+		double margin) {
+		/*
+		 * Merge the two sets so that a component selected by both filters has
+		 * only one box in the sweep.
+		 */
+		Map<Component, Integer> roles = new LinkedHashMap<>();
+		final int sourceRole = 1;
+		final int targetRole = 2;
+		for (Component source : sources) {
+			roles.merge(source, sourceRole, (a, b) -> a | b);
+		}
+		for (Component target : targets) {
+			roles.merge(target, targetRole, (a, b) -> a | b);
+		}
+
+		int count = roles.size();
+		Component[] components = roles.keySet().toArray(new Component[0]);
+		double[][] min = new double[AXES][count];
+		double[][] max = new double[AXES][count];
+		for (int i = 0; i < count; i++) {
+			AABB3d bounds = components[i].getBoundingBox();
+			copy(bounds.getLowerBound(), min, i, -0.5 * margin);
+			copy(bounds.getUpperBound(), max, i, 0.5 * margin);
+		}
+
+		/*
+		 * Sweep along the axis with the largest spread of box centers, since
+		 * that axis separates the most boxes from each other.
+		 */
+		int sweepAxis = findSweepAxis(min, max, count);
+		int otherAxis1 = (sweepAxis + 1) % AXES;
+		int otherAxis2 = (sweepAxis + 2) % AXES;
+
+		int[] order = sortByKey(min[sweepAxis]);
+
+		/*
+		 * Copy the boxes into sweep order so that the inner loop reads the
+		 * arrays sequentially.
+		 */
+		double[] aMin = new double[count];
+		double[] aMax = new double[count];
+		double[] bMin = new double[count];
+		double[] bMax = new double[count];
+		double[] cMin = new double[count];
+		double[] cMax = new double[count];
+		int[] role = new int[count];
+		Component[] sorted = new Component[count];
+		for (int i = 0; i < count; i++) {
+			int index = order[i];
+			aMin[i] = min[sweepAxis][index];
+			aMax[i] = max[sweepAxis][index];
+			bMin[i] = min[otherAxis1][index];
+			bMax[i] = max[otherAxis1][index];
+			cMin[i] = min[otherAxis2][index];
+			cMax[i] = max[otherAxis2][index];
+			sorted[i] = components[index];
+			role[i] = roles.get(sorted[i]);
+		}
+
+		Map<Component, List<Component>> candidates = new HashMap<>();
+		long pairCount = 0;
+		int[] active = new int[count];
+		int activeCount = 0;
+		for (int i = 0; i < count; i++) {
+			/*
+			 * Drop the boxes that end before the current box starts, they can
+			 * not overlap with this box or any box after it.
+			 */
+			int kept = 0;
+			for (int k = 0; k < activeCount; k++) {
+				int j = active[k];
+				if (aMax[j] >= aMin[i]) {
+					active[kept++] = j;
+				}
+			}
+			activeCount = kept;
+
+			for (int k = 0; k < activeCount; k++) {
+				int j = active[k];
+				if (bMin[i] > bMax[j] || bMin[j] > bMax[i] || cMin[i] > cMax[j] || cMin[j] > cMax[i]) {
+					continue;
+				}
+				/*
+				 * Two components selected by both filters are candidates of
+				 * each other, but they are evaluated only once, so the pair is
+				 * counted once.
+				 */
+				boolean paired = false;
+				if ((role[i] & sourceRole) != 0 && (role[j] & targetRole) != 0) {
+					candidates.computeIfAbsent(sorted[i], c -> new ArrayList<>()).add(sorted[j]);
+					paired = true;
+				}
+				if ((role[j] & sourceRole) != 0 && (role[i] & targetRole) != 0) {
+					candidates.computeIfAbsent(sorted[j], c -> new ArrayList<>()).add(sorted[i]);
+					paired = true;
+				}
+				if (paired) {
+					pairCount++;
+				}
+			}
+			active[activeCount++] = i;
+		}
+
+		return new SweepAndPruneBroadphase(candidates, pairCount);
+	}
+
+	/**
+	 * Returns the target components whose bounding boxes intersect the bounding
+	 * box of the given source component.
+	 *
+	 * @param source the source component
+	 * @return the candidate target components
+	 */
+	List<Component> getCandidates(Component source) {
+		return candidates.getOrDefault(source, Collections.emptyList());
+	}
+
+	/**
+	 * Returns the number of unordered component pairs the sweep produced.
+	 *
+	 * @return the number of candidate pairs
+	 */
+	long getCandidatePairCount() {
+		return candidatePairCount;
+	}
+
+	private static void copy(Vector3d point, double[][] target, int index, double offset) {
+		target[0][index] = point.getX() + offset;
+		target[1][index] = point.getY() + offset;
+		target[2][index] = point.getZ() + offset;
+	}
+
+	/**
+	 * Returns the indices of the given keys in ascending order of the keys.
+	 * The indices are sorted with a bottom-up merge sort on primitive arrays,
+	 * so that no objects are created for the indices.
+	 */
+	private static int[] sortByKey(double[] keys) {
+		int count = keys.length;
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		int[] buffer = new int[count];
+		for (int width = 1; width < count; width *= 2) {
+			for (int from = 0; from < count - width; from += 2 * width) {
+				int middle = from + width;
+				int to = Math.min(from + 2 * width, count);
+				if (keys[order[middle - 1]] <= keys[order[middle]]) {
+					continue;
+				}
+				System.arraycopy(order, from, buffer, from, to - from);
+				int left = from;
+				int right = middle;
+				for (int i = from; i < to; i++) {
+					if (right >= to || left < middle && keys[buffer[left]] <= keys[buffer[right]]) {
+						order[i] = buffer[left++];
+					} else {
+						order[i] = buffer[right++];
+					}
+				}
+			}
+		}
+		return order;
+	}
+
+	private static int findSweepAxis(double[][] min, double[][] max, int count) {
+		int bestAxis = 0;
+		double bestVariance = -1.0;
+		for (int axis = 0; axis < AXES; axis++) {
+			double sum = 0.0;
+			double sumOfSquares = 0.0;
+			for (int i = 0; i < count; i++) {
+				double center = 0.5 * (min[axis][i] + max[axis][i]);
+				sum += center;
+				sumOfSquares += center * center;
+			}
+			double mean = count == 0 ? 0.0 : sum / count;
+			double variance = count == 0 ? 0.0 : sumOfSquares / count - mean * mean;
+			if (variance > bestVariance) {
+				bestVariance = variance;
+				bestAxis = axis;
+			}
+		}
+		return bestAxis;
+	}
+}
@@ -0,0 +1,45 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+
+/**
+ * Collects the time each thread spends working during a checking run. The
+ * idle time of a thread is the part of the run it did not spend working, so
+ * comparing the threads shows how evenly the work was spread over the cores.
+ */
+final class ThreadLoadMonitor {
+
+	private final long startTime = System.nanoTime();
+
+	private final Map<String, LongAdder> busyTimes = new ConcurrentHashMap<>();
+
+	/**
+	 * Adds busy time to the current thread.
+	 *
+	 * @param nanos the busy time in nanoseconds
+	 */
+	void addBusyTime(long nanos) {
+		busyTimes.computeIfAbsent(Thread.currentThread().getName(), name -> new LongAdder()).add(nanos);
+	}
+
+	/**
+	 * Logs the busy and idle time of each thread that did work during the run.
+	 *
+	 * @param log the logger to write to
+	 */
+	void log(Logger log) {
+		long elapsed = System.nanoTime() - startTime;
+		Map<String, LongAdder> sortedBusyTimes = new TreeMap<>(busyTimes);
+		for (Map.Entry<String, LongAdder> entry : sortedBusyTimes.entrySet()) {
+			long busy = entry.getValue().sum();
+			log.info("{}: busy {} ms, idle {} ms", entry.getKey(), TimeUnit.NANOSECONDS.toMillis(busy),
+				TimeUnit.NANOSECONDS.toMillis(Math.max(0L, elapsed - busy)));
+		}
+	}
+}
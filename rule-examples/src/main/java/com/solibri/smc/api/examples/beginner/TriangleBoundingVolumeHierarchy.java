@@ -0,0 +1,296 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.solibri.geometry.linearalgebra.Vector3d;
+import com.solibri.geometry.mesh.TriangleMesh;
+import com.solibri.geometry.primitive3d.Triangle3d;
+
+/**
+ * A bounding volume hierarchy over the triangles of a component. Each node
+ * holds the bounding box of its triangles, and the triangles of an inner node
+ * are split in halves along the longest axis of their centers. The triangles
+ * and the node boxes are stored in flat arrays, so that the traversal does not
+ * create any objects for the nodes.
+ *
+ * Two hierarchies are traversed together to find out whether the meshes come
+ * closer to each other than a given distance. Node pairs whose boxes are
+ * further apart than the distance are skipped, and the traversal stops as soon
+ * as one pair of triangles is close enough.
+ */
+final class TriangleBoundingVolumeHierarchy {
+
+	/**
+	 * The largest number of triangles in a leaf node.
+	 */
+	private static final int LEAF_SIZE = 4;
+
+	private static final int BOX_STRIDE = 6;
+
+	/**
+	 * The coordinates of the triangles, ordered so that the triangles of each
+	 * node are consecutive.
+	 */
+	private final double[] triangles;
+
+	/**
+	 * The bounding boxes of the nodes as min x, y, z and max x, y, z.
+	 */
+	private final double[] boxes;
+
+	/**
+	 * The index of the first triangle of a leaf, or of the left child of an
+	 * inner node.
+	 */
+	private final int[] firsts;
+
+	/**
+	 * The number of triangles of a leaf, or -1 with the right child stored in
+	 * rights for an inner node.
+	 */
+	private final int[] counts;
+
+	private final int[] rights;
+
+	private TriangleBoundingVolumeHierarchy(double[] triangles, double[] boxes, int[] firsts, int[] counts,
+		int[] rights) {
+		this.triangles = triangles;
+		this.boxes = boxes;
+		this.firsts = firsts;
+		this.counts = counts;
+		this.rights = rights;
+	}
+
+	/**
+	 * Builds the hierarchy of the triangles of the given mesh.
+	 *
+	 * @param mesh the triangle mesh
+	 * @return the hierarchy of the mesh
+	 */
+	static TriangleBoundingVolumeHierarchy of(TriangleMesh mesh) {
+		List<double[]> meshTriangles = new ArrayList<>();
+		for (Triangle3d triangle : mesh) {
+			double[] coordinates = new double[TriangleDistance.TRIANGLE_STRIDE];
+			int i = 0;
+			for (Vector3d vertex : triangle) {
+				coordinates[i++] = vertex.getX();
+				coordinates[i++] = vertex.getY();
+				coordinates[i++] = vertex.getZ();
+			}
+			meshTriangles.add(coordinates);
+		}
+
+		int triangleCount = meshTriangles.size();
+		Integer[] order = new Integer[triangleCount];
+		double[][] centers = new double[triangleCount][3];
+		for (int i = 0; i < triangleCount; i++) {
+			order[i] = i;
+			double[] coordinates = meshTriangles.get(i);
+			for (int axis = 0; axis < 3; axis++) {
+				centers[i][axis] = (coordinates[axis] + coordinates[axis + 3] + coordinates[axis + 6]) / 3.0;
+			}
+		}
+
+		Builder builder = new Builder(meshTriangles, centers, order);
+		if (triangleCount > 0) {
+			builder.build(0, triangleCount);
+		}
+
+		double[] triangles = new double[triangleCount * TriangleDistance.TRIANGLE_STRIDE];
+		for (int i = 0; i < triangleCount; i++) {
+			System.arraycopy(meshTriangles.get(order[i]), 0, triangles, i * TriangleDistance.TRIANGLE_STRIDE,
+				TriangleDistance.TRIANGLE_STRIDE);
+		}
+		int nodeCount = builder.firsts.size();
+		double[] boxes = new double[nodeCount * BOX_STRIDE];
+		int[] firsts = new int[nodeCount];
+		int[] counts = new int[nodeCount];
+		int[] rights = new int[nodeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			System.arraycopy(builder.boxes.get(node), 0, boxes, node * BOX_STRIDE, BOX_STRIDE);
+			firsts[node] = builder.firsts.get(node);
+			counts[node] = builder.counts.get(node);
+			rights[node] = builder.rights.get(node);
+		}
+		return new TriangleBoundingVolumeHierarchy(triangles, boxes, firsts, counts, rights);
+	}
+
+	/**
+	 * Returns true if some triangles of the two hierarchies are closer to
+	 * each other than or exactly at the given distance.
+	 *
+	 * @param first the first hierarchy
+	 * @param second the second hierarchy
+	 * @param distance the distance
+	 * @return true if the meshes are within the distance of each other
+	 */
+	static boolean isWithinDistance(TriangleBoundingVolumeHierarchy first, TriangleBoundingVolumeHierarchy second,
+		double distance) {
+		if (first.counts.length == 0 || second.counts.length == 0) {
+			return false;
+		}
+		double distanceSquared = distance * distance;
+		int[] stack = new int[64];
+		int size = 0;
+		stack[size++] = 0;
+		stack[size++] = 0;
+		while (size > 0) {
+			int secondNode = stack[--size];
+			int firstNode = stack[--size];
+			if (boxDistanceSquared(first, firstNode, second, secondNode) > distanceSquared) {
+				continue;
+			}
+
+			boolean firstLeaf = first.counts[firstNode] >= 0;
+			boolean secondLeaf = second.counts[secondNode] >= 0;
+			if (firstLeaf && secondLeaf) {
+				if (leavesWithinDistance(first, firstNode, second, secondNode, distanceSquared)) {
+					return true;
+				}
+				continue;
+			}
+
+			if (stack.length < size + 4) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+			}
+			/*
+			 * Descend into the larger of the two nodes, so that the boxes
+			 * compared stay about the same size.
+			 */
+			if (secondLeaf || !firstLeaf && first.boxVolume(firstNode) >= second.boxVolume(secondNode)) {
+				stack[size++] = first.firsts[firstNode];
+				stack[size++] = secondNode;
+				stack[size++] = first.rights[firstNode];
+				stack[size++] = secondNode;
+			} else {
+				stack[size++] = firstNode;
+				stack[size++] = second.firsts[secondNode];
+				stack[size++] = firstNode;
+				stack[size++] = second.rights[secondNode];
+			}
+		}
+		return false;
+	}
+
+	private static boolean leavesWithinDistance(TriangleBoundingVolumeHierarchy first, int firstNode,
+		TriangleBoundingVolumeHierarchy second, int secondNode, double distanceSquared) {
+		int firstEnd = first.firsts[firstNode] + first.counts[firstNode];
+		int secondEnd = second.firsts[secondNode] + second.counts[secondNode];
+		for (int i = first.firsts[firstNode]; i < firstEnd; i++) {
+			for (int j = second.firsts[secondNode]; j < secondEnd; j++) {
+				double triangleDistanceSquared = TriangleDistance.distanceSquared(first.triangles,
+					i * TriangleDistance.TRIANGLE_STRIDE, second.triangles, j * TriangleDistance.TRIANGLE_STRIDE);
+				if (triangleDistanceSquared <= distanceSquared) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static double boxDistanceSquared(TriangleBoundingVolumeHierarchy first, int firstNode,
+		TriangleBoundingVolumeHierarchy second, int secondNode) {
+		int a = firstNode * BOX_STRIDE;
+		int b = secondNode * BOX_STRIDE;
+		double sum = 0.0;
+		for (int axis = 0; axis < 3; axis++) {
+			double gap = Math.max(first.boxes[a + axis] - second.boxes[b + axis + 3],
+				second.boxes[b + axis] - first.boxes[a + axis + 3]);
+			if (gap > 0.0) {
+				sum += gap * gap;
+			}
+		}
+		return sum;
+	}
+
+	private double boxVolume(int node) {
+		int offset = node * BOX_STRIDE;
+		return (boxes[offset + 3] - boxes[offset]) * (boxes[offset + 4] - boxes[offset + 1])
+			* (boxes[offset + 5] - boxes[offset + 2]);
+	}
+
+	/**
+	 * Builds the nodes in depth first order. The left child of an inner node
+	 * is always the node right after it.
+	 */
+	private static final class Builder {
+
+		private final List<double[]> triangles;
+
+		private final double[][] centers;
+
+		private final Integer[] order;
+
+		private final List<double[]> boxes = new ArrayList<>();
+
+		private final List<Integer> firsts = new ArrayList<>();
+
+		private final List<Integer> counts = new ArrayList<>();
+
+		private final List<Integer> rights = new ArrayList<>();
+
+		Builder(List<double[]> triangles, double[][] centers, Integer[] order) {
+			this.triangles = triangles;
+			this.centers = centers;
+			this.order = order;
+		}
+
+		int build(int from, int to) {
+			int node = firsts.size();
+			boxes.add(bounds(from, to));
+			firsts.add(from);
+			counts.add(to - from);
+			rights.add(-1);
+			if (to - from <= LEAF_SIZE) {
+				return node;
+			}
+
+			int axis = longestCenterAxis(from, to);
+			Arrays.sort(order, from, to, Comparator.comparingDouble(i -> centers[i][axis]));
+			int middle = (from + to) >>> 1;
+			int left = build(from, middle);
+			int right = build(middle, to);
+			firsts.set(node, left);
+			counts.set(node, -1);
+			rights.set(node, right);
+			return node;
+		}
+
+		private double[] bounds(int from, int to) {
+			double[] box = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+			for (int i = from; i < to; i++) {
+				double[] coordinates = triangles.get(order[i]);
+				for (int vertex = 0; vertex < 3; vertex++) {
+					for (int axis = 0; axis < 3; axis++) {
+						double value = coordinates[3 * vertex + axis];
+						box[axis] = Math.min(box[axis], value);
+						box[axis + 3] = Math.max(box[axis + 3], value);
+					}
+				}
+			}
+			return box;
+		}
+
+		private int longestCenterAxis(int from, int to) {
+			int longestAxis = 0;
+			double longestExtent = -1.0;
+			for (int axis = 0; axis < 3; axis++) {
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				for (int i = from; i < to; i++) {
+					min = Math.min(min, centers[order[i]][axis]);
+					max = Math.max(max, centers[order[i]][axis]);
+				}
+				if (max - min > longestExtent) {
+					longestExtent = max - min;
+					longestAxis = axis;
+				}
+			}
+			return longestAxis;
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package com.solibri.smc.api.examples.beginner;
+
+/**
+ * Exact distance computations between triangles stored in flat coordinate
+ * arrays. A triangle takes nine consecutive values of an array: the x, y and
+ * z coordinates of its three vertices.
+ *
+ * The distance of two triangles is zero if an edge of one triangle crosses
+ * the other triangle. Otherwise the closest points are found either between
+ * two edges or between a vertex and the other triangle, so the distance is
+ * the smallest of the nine edge to edge and six vertex to triangle distances.
+ *
+ * The computations read the vertices from the arrays by their offsets and
+ * keep the intermediate vectors in local variables, so that measuring the
+ * distance of a triangle pair does not create any objects.
+ */
+final class TriangleDistance {
+
+	/**
+	 * The number of coordinates of a triangle.
+	 */
+	static final int TRIANGLE_STRIDE = 9;
+
+	private static final double EPSILON = 1e-12;
+
+	private TriangleDistance() {
+	}
+
+	/**
+	 * Returns the squared distance between two triangles.
+	 *
+	 * @param first the coordinates of the first triangle
+	 * @param firstOffset the offset of the first triangle in its array
+	 * @param second the coordinates of the second triangle
+	 * @param secondOffset the offset of the second triangle in its array
+	 * @return the squared distance between the triangles
+	 */
+	static double distanceSquared(double[] first, int firstOffset, double[] second, int secondOffset) {
+		for (int i = 0; i < 3; i++) {
+			if (segmentIntersectsTriangle(first, vertex(firstOffset, i), vertex(firstOffset, i + 1), second,
+				secondOffset)
+				|| segmentIntersectsTriangle(second, vertex(secondOffset, i), vertex(secondOffset, i + 1), first,
+					firstOffset)) {
+				return 0.0;
+			}
+		}
+
+		double best = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				best = Math.min(best, segmentDistanceSquared(first, vertex(firstOffset, i), vertex(firstOffset, i + 1),
+					second, vertex(secondOffset, j), vertex(secondOffset, j + 1)));
+			}
+			best = Math.min(best, pointTriangleDistanceSquared(first, vertex(firstOffset, i), second, secondOffset));
+			best = Math.min(best, pointTriangleDistanceSquared(second, vertex(secondOffset, i), first, firstOffset));
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the offset of a vertex of the triangle at the given offset. The
+	 * vertex after the last one is the first one.
+	 */
+	private static int vertex(int triangleOffset, int vertex) {
+		return triangleOffset + 3 * (vertex % 3);
+	}
+
+	/**
+	 * Returns the squared distance between the segments p1-q1 of the first
+	 * array and p2-q2 of the second array.
+	 */
+	private static double segmentDistanceSquared(double[] first, int p1, int q1, double[] second, int p2, int q2) {
+		double d1x = first[q1] - first[p1];
+		double d1y = first[q1 + 1] - first[p1 + 1];
+		double d1z = first[q1 + 2] - first[p1 + 2];
+		double d2x = second[q2] - second[p2];
+		double d2y = second[q2 + 1] - second[p2 + 1];
+		double d2z = second[q2 + 2] - second[p2 + 2];
+		double rx = first[p1] - second[p2];
+		double ry = first[p1 + 1] - second[p2 + 1];
+		double rz = first[p1 + 2] - second[p2 + 2];
+		double a = d1x * d1x + d1y * d1y + d1z * d1z;
+		double e = d2x * d2x + d2y * d2y + d2z * d2z;
+		double f = d2x * rx + d2y * ry + d2z * rz;
+
+		double s;
+		double t;
+		if (a <= EPSILON && e <= EPSILON) {
+			return rx * rx + ry * ry + rz * rz;
+		}
+		if (a <= EPSILON) {
+			s = 0.0;
+			t = clamp(f / e);
+		} else {
+			double c = d1x * rx + d1y * ry + d1z * rz;
+			if (e <= EPSILON) {
+				t = 0.0;
+				s = clamp(-c / a);
+			} else {
+				double b = d1x * d2x + d1y * d2y + d1z * d2z;
+				double denominator = a * e - b * b;
+				s = denominator != 0.0 ? clamp((b * f - c * e) / denominator) : 0.0;
+				t = (b * s + f) / e;
+				if (t < 0.0) {
+					t = 0.0;
+					s = clamp(-c / a);
+				} else if (t > 1.0) {
+					t = 1.0;
+					s = clamp((b - c) / a);
+				}
+			}
+		}
+
+		double dx = first[p1] + d1x * s - (second[p2] + d2x * t);
+		double dy = first[p1 + 1] + d1y * s - (second[p2 + 1] + d2y * t);
+		double dz = first[p1 + 2] + d1z * s - (second[p2 + 2] + d2z * t);
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Returns the squared distance between the point p of the first array and
+	 * the triangle at the given offset of the second array. The closest point
+	 * is found by checking which vertex, edge or face region of the triangle
+	 * the point projects to.
+	 */
+	private static double pointTriangleDistanceSquared(double[] points, int p, double[] triangle, int offset) {
+		double px = points[p];
+		double py = points[p + 1];
+		double pz = points[p + 2];
+		double ax = triangle[offset];
+		double ay = triangle[offset + 1];
+		double az = triangle[offset + 2];
+		double bx = triangle[offset + 3];
+		double by = triangle[offset + 4];
+		double bz = triangle[offset + 5];
+		double cx = triangle[offset + 6];
+		double cy = triangle[offset + 7];
+		double cz = triangle[offset + 8];
+		double abx = bx - ax;
+		double aby = by - ay;
+		double abz = bz - az;
+		double acx = cx - ax;
+		double acy = cy - ay;
+		double acz = cz - az;
+
+		double apx = px - ax;
+		double apy = py - ay;
+		double apz = pz - az;
+		double d1 = abx * apx + aby * apy + abz * apz;
+		double d2 = acx * apx + acy * apy + acz * apz;
+		if (d1 <= 0.0 && d2 <= 0.0) {
+			return apx * apx + apy * apy + apz * apz;
+		}
+
+		double bpx = px - bx;
+		double bpy = py - by;
+		double bpz = pz - bz;
+		double d3 = abx * bpx + aby * bpy + abz * bpz;
+		double d4 = acx * bpx + acy * bpy + acz * bpz;
+		if (d3 >= 0.0 && d4 <= d3) {
+			return bpx * bpx + bpy * bpy + bpz * bpz;
+		}
+
+		double vc = d1 * d4 - d3 * d2;
+		if (vc <= 0.0 && d1 >= 0.0 && d3 <= 0.0) {
+			double factor = d1 / (d1 - d3);
+			return distanceSquared(px, py, pz, ax + abx * factor, ay + aby * factor, az + abz * factor);
+		}
+
+		double cpx = px - cx;
+		double cpy = py - cy;
+		double cpz = pz - cz;
+		double d5 = abx * cpx + aby * cpy + abz * cpz;
+		double d6 = acx * cpx + acy * cpy + acz * cpz;
+		if (d6 >= 0.0 && d5 <= d6) {
+			return cpx * cpx + cpy * cpy + cpz * cpz;
+		}
+
+		double vb = d5 * d2 - d1 * d6;
+		if (vb <= 0.0 && d2 >= 0.0 && d6 <= 0.0) {
+			double factor = d2 / (d2 - d6);
+			return distanceSquared(px, py, pz, ax + acx * factor, ay + acy * factor, az + acz * factor);
+		}
+
+		double va = d3 * d6 - d5 * d4;
+		if (va <= 0.0 && d4 - d3 >= 0.0 && d5 - d6 >= 0.0) {
+			double factor = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+			return distanceSquared(px, py, pz, bx + (cx - bx) * factor, by + (cy - by) * factor,
+				bz + (cz - bz) * factor);
+		}
+
+		double sum = va + vb + vc;
+		if (sum <= EPSILON) {
+			/*
+			 * The triangle is degenerate, so the edges and vertices already
+			 * give the distance.
+			 */
+			return Double.POSITIVE_INFINITY;
+		}
+		double v = vb / sum;
+		double w = vc / sum;
+		return distanceSquared(px, py, pz, ax + abx * v + acx * w, ay + aby * v + acy * w, az + abz * v + acz * w);
+	}
+
+	/**
+	 * Returns true if the segment p-q of the first array crosses the triangle
+	 * at the given offset of the second array. Segments parallel to the
+	 * triangle are not reported, since their distance to the triangle is
+	 * found by the edge and vertex tests.
+	 */
+	private static boolean segmentIntersectsTriangle(double[] segment, int p, int q, double[] triangle, int offset) {
+		double directionX = segment[q] - segment[p];
+		double directionY = segment[q + 1] - segment[p + 1];
+		double directionZ = segment[q + 2] - segment[p + 2];
+		double edge1X = triangle[offset + 3] - triangle[offset];
+		double edge1Y = triangle[offset + 4] - triangle[offset + 1];
+		double edge1Z = triangle[offset + 5] - triangle[offset + 2];
+		double edge2X = triangle[offset + 6] - triangle[offset];
+		double edge2Y = triangle[offset + 7] - triangle[offset + 1];
+		double edge2Z = triangle[offset + 8] - triangle[offset + 2];
+		double hx = directionY * edge2Z - directionZ * edge2Y;
+		double hy = directionZ * edge2X - directionX * edge2Z;
+		double hz = directionX * edge2Y - directionY * edge2X;
+		double determinant = edge1X * hx + edge1Y * hy + edge1Z * hz;
+		if (Math.abs(determinant) < EPSILON) {
+			return false;
+		}
+		double inverse = 1.0 / determinant;
+		double sx = segment[p] - triangle[offset];
+		double sy = segment[p + 1] - triangle[offset + 1];
+		double sz = segment[p + 2] - triangle[offset + 2];
+		double u = inverse * (sx * hx + sy * hy + sz * hz);
+		if (u < 0.0 || u > 1.0) {
+			return false;
+		}
+		double kx = sy * edge1Z - sz * edge1Y;
+		double ky = sz * edge1X - sx * edge1Z;
+		double kz = sx * edge1Y - sy * edge1X;
+		double v = inverse * (directionX * kx + directionY * ky + directionZ * kz);
+		if (v < 0.0 || u + v > 1.0) {
+			return false;
+		}
+		double t = inverse * (edge2X * kx + edge2Y * ky + edge2Z * kz);
+		return t >= 0.0 && t <= 1.0;
+	}
+
+	private static double clamp(double value) {
+		return Math.max(0.0, Math.min(1.0, value));
+	}
+
+	private static double distanceSquared(double ax, double ay, double az, double bx, double by, double bz) {
+		double dx = ax - bx;
+		double dy = ay - by;
+		double dz = az - bz;
+		return dx * dx + dy * dy + dz * dz;
+	}
+}
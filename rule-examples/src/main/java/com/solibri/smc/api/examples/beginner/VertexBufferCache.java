@@ -0,0 +1,173 @@
+package com.solibri.smc.api.examples.beginner;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import com.solibri.geometry.linearalgebra.Vector3d;
+import com.solibri.geometry.mesh.TriangleMesh;
+import com.solibri.geometry.primitive3d.Triangle3d;
+import com.solibri.smc.api.model.Component;
+
+/**
+ * A size bounded cache of the vertex buffers of components. A vertex buffer
+ * holds the x, y and z coordinates of each distinct vertex of the triangle
+ * mesh of a component, so a vertex shared by several triangles is stored only
+ * once. The cache can transform the welded buffer before storing it, for
+ * example to keep only the vertices of the convex hull.
+ *
+ * The least recently used buffers are dropped when the buffers take more
+ * memory than the budget. The cache can be used from several checking
+ * threads at the same time.
+ */
+final class VertexBufferCache {
+
+	private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+
+	private static final int BYTES_PER_COORDINATE = Double.BYTES;
+
+	private final long budgetBytes;
+
+	private final UnaryOperator<double[]> transformation;
+
+	private final LinkedHashMap<Component, double[]> buffers = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long usedBytes;
+
+	/**
+	 * Creates a cache with the given memory budget.
+	 *
+	 * @param budgetMegabytes the memory budget of the buffers in megabytes
+	 * @param transformation the transformation applied to a welded buffer
+	 *            before it is cached
+	 */
+	VertexBufferCache(int budgetMegabytes, UnaryOperator<double[]> transformation) {
+		this.budgetBytes = budgetMegabytes * BYTES_PER_MEGABYTE;
+		this.transformation = transformation;
+	}
+
+	/**
+	 * Returns the vertex buffer of the given component. The buffer is created
+	 * outside of the lock of the cache, so two threads may create the buffer
+	 * of the same component at the same time, but only one of them is kept.
+	 *
+	 * @param component the component
+	 * @return the vertex buffer of the component
+	 */
+	double[] get(Component component) {
+		synchronized (buffers) {
+			double[] buffer = buffers.get(component);
+			if (buffer != null) {
+				return buffer;
+			}
+		}
+
+		double[] buffer = transformation.apply(weld(component.getTriangleMesh()));
+		synchronized (buffers) {
+			double[] previous = buffers.put(component, buffer);
+			if (previous != null) {
+				usedBytes -= (long) previous.length * BYTES_PER_COORDINATE;
+			}
+			usedBytes += (long) buffer.length * BYTES_PER_COORDINATE;
+
+			/*
+			 * Drop the least recently used buffers, but always keep the one
+			 * just added.
+			 */
+			Iterator<Map.Entry<Component, double[]>> iterator = buffers.entrySet().iterator();
+			while (usedBytes > budgetBytes && buffers.size() > 1) {
+				Map.Entry<Component, double[]> eldest = iterator.next();
+				if (eldest.getKey().equals(component)) {
+					continue;
+				}
+				usedBytes -= (long) eldest.getValue().length * BYTES_PER_COORDINATE;
+				iterator.remove();
+			}
+		}
+		return buffer;
+	}
+
+	/**
+	 * Removes all the buffers from the cache.
+	 */
+	void clear() {
+		synchronized (buffers) {
+			buffers.clear();
+			usedBytes = 0;
+		}
+	}
+
+	/**
+	 * Returns the vertex buffer of the distinct vertices of the mesh. The
+	 * vertices are matched by their exact coordinates with an open addressing
+	 * hash table over the buffer indices.
+	 *
+	 * @param mesh the triangle mesh
+	 * @return the vertex buffer
+	 */
+	static double[] weld(TriangleMesh mesh) {
+		double[] coordinates = new double[3 * 64];
+		int[] table = new int[128];
+		Arrays.fill(table, -1);
+		int count = 0;
+		for (Triangle3d triangle : mesh) {
+			for (Vector3d vertex : triangle) {
+				double x = vertex.getX();
+				double y = vertex.getY();
+				double z = vertex.getZ();
+				int mask = table.length - 1;
+				int slot = hash(x, y, z) & mask;
+				boolean found = false;
+				while (table[slot] >= 0) {
+					int index = 3 * table[slot];
+					if (coordinates[index] == x && coordinates[index + 1] == y && coordinates[index + 2] == z) {
+						found = true;
+						break;
+					}
+					slot = (slot + 1) & mask;
+				}
+				if (found) {
+					continue;
+				}
+
+				if (3 * count == coordinates.length) {
+					coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+				}
+				coordinates[3 * count] = x;
+				coordinates[3 * count + 1] = y;
+				coordinates[3 * count + 2] = z;
+				table[slot] = count++;
+				if (2 * count > table.length) {
+					table = rehash(coordinates, count, table.length * 2);
+				}
+			}
+		}
+		return Arrays.copyOf(coordinates, 3 * count);
+	}
+
+	private static int[] rehash(double[] coordinates, int count, int capacity) {
+		int[] table = new int[capacity];
+		Arrays.fill(table, -1);
+		int mask = capacity - 1;
+		for (int i = 0; i < count; i++) {
+			int slot = hash(coordinates[3 * i], coordinates[3 * i + 1], coordinates[3 * i + 2]) & mask;
+			while (table[slot] >= 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = i;
+		}
+		return table;
+	}
+
+	private static int hash(double x, double y, double z) {
+		long hash = Double.doubleToLongBits(x);
+		hash = hash * 31 + Double.doubleToLongBits(y);
+		hash = hash * 31 + Double.doubleToLongBits(z);
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return (int) hash;
+	}
+}
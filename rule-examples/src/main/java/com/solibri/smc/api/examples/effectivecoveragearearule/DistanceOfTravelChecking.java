@@ -5,9 +5,16 @@ import java.util.Collection;
 import com.solibri.geometry.primitive2d.MArea;
 import com.solibri.smc.api.model.Component;
 import com.solibri.smc.api.examples.effectivecoveragearearule.visibility.DistanceOfTravelEffectCalculator;
+import com.solibri.smc.api.examples.effectivecoveragearearule.visibility.SpaceVisibilityGraph;
 
 public class DistanceOfTravelChecking extends EffectiveCoverageChecking {
 
+	/*
+	 * The visibility graph of the space is the same for all the effect
+	 * sources, so it is created for the first source and shared by the rest.
+	 */
+	private SpaceVisibilityGraph spaceVisibilityGraph;
+
 	public DistanceOfTravelChecking(
 		Component spaceEntity,
 		Collection<Component> effectSources,
@@ -18,8 +25,11 @@ public class DistanceOfTravelChecking extends EffectiveCoverageChecking {
 
 	@Override
 	MArea calculateCoverage(MArea sourceFootprint) {
+		if (spaceVisibilityGraph == null || spaceVisibilityGraph.getArea() != spaceArea) {
+			spaceVisibilityGraph = SpaceVisibilityGraph.fromArea(spaceArea);
+		}
 		DistanceOfTravelEffectCalculator calculator = DistanceOfTravelEffectCalculator
-			.fromAreaAndSourceAndEffectRange(spaceArea, sourceFootprint, effectRange);
+			.fromSpaceAndSourceAndEffectRange(spaceVisibilityGraph, sourceFootprint, effectRange);
 		MArea effectArea = MArea.create(calculator.getEffectArea());
 		effectArea.add(calculator.getGeometryGraph().getPossiblyResizedSource());
 		effectArea.intersect(spaceArea);
@@ -0,0 +1,300 @@
+package com.solibri.smc.api.examples.effectivecoveragearearule.visibility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.solibri.geometry.linearalgebra.Vector2d;
+
+/**
+ * A directed graph of points stored in compressed sparse row form. The
+ * vertices are numbered from zero, and the edges leaving a vertex are stored
+ * next to each other in flat arrays, so that going through the edges of a
+ * vertex or probing for an edge does not create any objects. The edges coming
+ * to a vertex are stored the same way.
+ *
+ * The graph can not be changed once it is built. Graphs built from the
+ * vertices of another graph share its vertex numbers and coordinates.
+ */
+final class CompactGraph {
+
+	private final List<Vector2d> vertices;
+
+	private final Map<Vector2d, Integer> vertexIds;
+
+	private final double[] xs;
+
+	private final double[] ys;
+
+	/**
+	 * The edges leaving vertex v are the indices from outgoingOffsets[v] up to
+	 * outgoingOffsets[v + 1] of sources, targets and weights.
+	 */
+	private final int[] outgoingOffsets;
+
+	private final int[] sources;
+
+	private final int[] targets;
+
+	private final double[] weights;
+
+	/**
+	 * The edges coming to vertex v are the edges incomingEdges[i] for i from
+	 * incomingOffsets[v] up to incomingOffsets[v + 1].
+	 */
+	private final int[] incomingOffsets;
+
+	private final int[] incomingEdges;
+
+	private CompactGraph(Builder builder) {
+		this.vertices = builder.vertices;
+		this.vertexIds = builder.vertexIds;
+		this.xs = builder.xs;
+		this.ys = builder.ys;
+		int vertexCount = vertices.size();
+		int edgeCount = builder.edgeCount;
+
+		/*
+		 * Count the edges of each vertex and place the edges after each other
+		 * by their source, and then the same by their target.
+		 */
+		outgoingOffsets = new int[vertexCount + 1];
+		incomingOffsets = new int[vertexCount + 1];
+		for (int edge = 0; edge < edgeCount; edge++) {
+			outgoingOffsets[builder.edgeSources[edge] + 1]++;
+			incomingOffsets[builder.edgeTargets[edge] + 1]++;
+		}
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			outgoingOffsets[vertex + 1] += outgoingOffsets[vertex];
+			incomingOffsets[vertex + 1] += incomingOffsets[vertex];
+		}
+
+		sources = new int[edgeCount];
+		targets = new int[edgeCount];
+		weights = new double[edgeCount];
+		int[] nextOutgoing = Arrays.copyOf(outgoingOffsets, vertexCount);
+		for (int edge = 0; edge < edgeCount; edge++) {
+			int index = nextOutgoing[builder.edgeSources[edge]]++;
+			sources[index] = builder.edgeSources[edge];
+			targets[index] = builder.edgeTargets[edge];
+			weights[index] = builder.edgeWeights[edge];
+		}
+
+		incomingEdges = new int[edgeCount];
+		int[] nextIncoming = Arrays.copyOf(incomingOffsets, vertexCount);
+		for (int edge = 0; edge < edgeCount; edge++) {
+			incomingEdges[nextIncoming[targets[edge]]++] = edge;
+		}
+	}
+
+	/**
+	 * Creates a builder of a graph with new vertices.
+	 *
+	 * @return the builder
+	 */
+	static Builder builder() {
+		return new Builder(new ArrayList<>(), new HashMap<>(), new double[16], new double[16], false);
+	}
+
+	/**
+	 * Creates a builder of a graph with the vertices of the given graph. The
+	 * vertices get the same numbers in both graphs.
+	 *
+	 * @param graph the graph whose vertices are used
+	 * @return the builder
+	 */
+	static Builder builderWithVerticesOf(CompactGraph graph) {
+		return new Builder(graph.vertices, graph.vertexIds, graph.xs, graph.ys, true);
+	}
+
+	/**
+	 * Creates a graph of the vertices and edges of the given directed graph.
+	 *
+	 * @param graph the directed graph
+	 * @return the compact graph
+	 */
+	static CompactGraph of(DirectedGraph<Vector2d> graph) {
+		Builder builder = builder();
+		graph.getVertices().forEach(builder::addVertex);
+		for (Edge<Vector2d> edge : graph.getEdges()) {
+			builder.addEdge(builder.addVertex(edge.getSource()), builder.addVertex(edge.getDestination()),
+				edge.weight);
+		}
+		return builder.build();
+	}
+
+	int getVertexCount() {
+		return vertices.size();
+	}
+
+	int getEdgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * Returns the number of the given vertex.
+	 *
+	 * @param vertex the vertex
+	 * @return the number of the vertex, or -1 if it is not in the graph
+	 */
+	int getId(Vector2d vertex) {
+		Integer id = vertexIds.get(vertex);
+		return id != null ? id : -1;
+	}
+
+	Vector2d getVertex(int id) {
+		return vertices.get(id);
+	}
+
+	Collection<Vector2d> getVertices() {
+		return Collections.unmodifiableList(vertices);
+	}
+
+	double getX(int id) {
+		return xs[id];
+	}
+
+	double getY(int id) {
+		return ys[id];
+	}
+
+	/**
+	 * Returns the index of the first edge leaving the given vertex. The edges
+	 * leaving the vertex end at the first edge of the next vertex.
+	 */
+	int getFirstOutgoingEdge(int id) {
+		return outgoingOffsets[id];
+	}
+
+	int getLastOutgoingEdge(int id) {
+		return outgoingOffsets[id + 1];
+	}
+
+	/**
+	 * Returns the index of the first incoming edge of the given vertex in the
+	 * incoming edges. The incoming edges of the vertex end at the first
+	 * incoming edge of the next vertex.
+	 */
+	int getFirstIncomingEdge(int id) {
+		return incomingOffsets[id];
+	}
+
+	int getLastIncomingEdge(int id) {
+		return incomingOffsets[id + 1];
+	}
+
+	/**
+	 * Returns the index of the edge at the given position of the incoming
+	 * edges.
+	 */
+	int getIncomingEdge(int index) {
+		return incomingEdges[index];
+	}
+
+	int getSource(int edge) {
+		return sources[edge];
+	}
+
+	int getTarget(int edge) {
+		return targets[edge];
+	}
+
+	double getWeight(int edge) {
+		return weights[edge];
+	}
+
+	boolean hasEdge(int source, int target) {
+		for (int edge = outgoingOffsets[source]; edge < outgoingOffsets[source + 1]; edge++) {
+			if (targets[edge] == target) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	boolean hasEdge(Vector2d source, Vector2d target) {
+		int sourceId = getId(source);
+		int targetId = getId(target);
+		return sourceId >= 0 && targetId >= 0 && hasEdge(sourceId, targetId);
+	}
+
+	/**
+	 * Collects the vertices and edges of a compact graph. The edges are kept
+	 * in growing arrays until the graph is built.
+	 */
+	static final class Builder {
+
+		private final List<Vector2d> vertices;
+
+		private final Map<Vector2d, Integer> vertexIds;
+
+		private double[] xs;
+
+		private double[] ys;
+
+		private final boolean sharedVertices;
+
+		private int[] edgeSources = new int[16];
+
+		private int[] edgeTargets = new int[16];
+
+		private double[] edgeWeights = new double[16];
+
+		private int edgeCount;
+
+		private Builder(List<Vector2d> vertices, Map<Vector2d, Integer> vertexIds, double[] xs, double[] ys,
+			boolean sharedVertices) {
+			this.vertices = vertices;
+			this.vertexIds = vertexIds;
+			this.xs = xs;
+			this.ys = ys;
+			this.sharedVertices = sharedVertices;
+		}
+
+		/**
+		 * Adds a vertex to the graph if it is not there yet.
+		 *
+		 * @param vertex the vertex
+		 * @return the number of the vertex
+		 */
+		int addVertex(Vector2d vertex) {
+			Integer id = vertexIds.get(vertex);
+			if (id != null) {
+				return id;
+			}
+			if (sharedVertices) {
+				throw new IllegalArgumentException(vertex + " is not a vertex of the shared graph");
+			}
+			int newId = vertices.size();
+			if (newId == xs.length) {
+				xs = Arrays.copyOf(xs, xs.length * 2);
+				ys = Arrays.copyOf(ys, ys.length * 2);
+			}
+			vertices.add(vertex);
+			vertexIds.put(vertex, newId);
+			xs[newId] = vertex.getX();
+			ys[newId] = vertex.getY();
+			return newId;
+		}
+
+		void addEdge(int source, int target, double weight) {
+			if (edgeCount == edgeSources.length) {
+				edgeSources = Arrays.copyOf(edgeSources, edgeCount * 2);
+				edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+				edgeWeights = Arrays.copyOf(edgeWeights, edgeCount * 2);
+			}
+			edgeSources[edgeCount] = source;
+			edgeTargets[edgeCount] = target;
+			edgeWeights[edgeCount] = weight;
+			edgeCount++;
+		}
+
+		CompactGraph build() {
+			return new CompactGraph(this);
+		}
+	}
+}
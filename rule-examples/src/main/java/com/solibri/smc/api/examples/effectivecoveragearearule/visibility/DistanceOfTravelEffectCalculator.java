@@ -1,10 +1,7 @@
 package com.solibri.smc.api.examples.effectivecoveragearearule.visibility;
 
 import java.awt.geom.Path2D;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Queue;
+import java.util.stream.IntStream;
 
 import com.solibri.geometry.linearalgebra.Vector2d;
 import com.solibri.geometry.primitive2d.Area;
@@ -28,7 +25,13 @@ public class DistanceOfTravelEffectCalculator {
 	final VisibilityPolygonCalculator calculator;
 	final Area effectSource;
 	final double effectRange;
-	final Map<Vector2d, Double> distanceToSourceMap = new HashMap<>();
+
+	/**
+	 * The shortest distance from the effect source to each vertex of the
+	 * visibility graph by its number, or Double.MAX_VALUE if the vertex is not
+	 * within the effect range.
+	 */
+	double[] distancesToSource = new double[0];
 
 	public static DistanceOfTravelEffectCalculator fromAreaAndSourceAndEffectRange(Area area, Area source,
 																				   double effectRange) {
@@ -40,6 +43,26 @@ public class DistanceOfTravelEffectCalculator {
 		return calculator;
 	}
 
+	/**
+	 * Creates the calculator of an effect source in a space. The visibility
+	 * graph of the effect source is built on top of the visibility graph of
+	 * the space, which can be shared by all the effect sources in the space.
+	 *
+	 * @param space the visibility graph of the space
+	 * @param source the footprint of the effect source
+	 * @param effectRange the effect range
+	 * @return the initialized calculator
+	 */
+	public static DistanceOfTravelEffectCalculator fromSpaceAndSourceAndEffectRange(SpaceVisibilityGraph space,
+		Area source, double effectRange) {
+		EffectGeometryGraph geometryGraph = EffectGeometryGraph.fromAreaAndSource(space.getArea(), source);
+		VisibilityGraph visibilityGraph = VisibilityGraph.fromGeometryOnSpace(geometryGraph, space);
+		DistanceOfTravelEffectCalculator calculator = new DistanceOfTravelEffectCalculator(geometryGraph,
+			visibilityGraph, source, effectRange);
+		calculator.initialize();
+		return calculator;
+	}
+
 	DistanceOfTravelEffectCalculator(EffectGeometryGraph geometryGraph, VisibilityGraph visibilityGraph,
 									 Area effectSource, double effectRange) {
 		this.geometryGraph = geometryGraph;
@@ -51,44 +74,48 @@ public class DistanceOfTravelEffectCalculator {
 
 	/**
 	 * To initialize the calculator, first the VisibilityGraph is calculated.
-	 * Then the vertices that are within the effect range from the effect source
-	 * are inserted to the distanceToSourceMap.
+	 * Then the shortest distances from the effect source are found for the
+	 * vertices that are within the effect range.
 	 */
 	void initialize() {
 		// calculate the visibility graph
 		visibilityGraph.calculate();
 
 		/*
-		 * Initialize map with all vertices in visibility graph. Set distance
-		 * for source vertices to 0.0 and add them to the queue.
+		 * Initialize the distances of all vertices in visibility graph. Set
+		 * distance for source vertices to 0.0 and add them to the heap.
 		 */
-		Queue<Vector2d> queue = new LinkedList<>();
-		visibilityGraph.getVertices().forEach(vertex -> {
-			if (geometryGraph.getSourceVertices().contains(vertex)) {
-				queue.add(vertex);
-				distanceToSourceMap.put(vertex, 0.0);
+		CompactGraph graph = visibilityGraph.getVisibilityEdges();
+		double[] distances = new double[graph.getVertexCount()];
+		IndexedMinHeap heap = new IndexedMinHeap(graph.getVertexCount());
+		for (int vertex = 0; vertex < distances.length; vertex++) {
+			if (geometryGraph.getSourceVertices().contains(graph.getVertex(vertex))) {
+				distances[vertex] = 0.0;
+				heap.addOrDecrease(vertex, 0.0);
 			} else {
-				distanceToSourceMap.put(vertex, Double.MAX_VALUE);
+				distances[vertex] = Double.MAX_VALUE;
 			}
-		});
+		}
 
 		/*
-		 * Breadth-first search to find all vertices that are within effect
-		 * range of source in the visibility graph
+		 * Dijkstra's algorithm from all the source vertices at once. The
+		 * vertex with the shortest distance is always taken next, so its
+		 * distance is final and it is visited only once. Vertices further than
+		 * the effect range are never added to the heap.
 		 */
-		while (!queue.isEmpty()) {
-			Vector2d source = queue.remove();
-			double currentRange = distanceToSourceMap.get(source);
-			visibilityGraph.getEdgesFromVertex(source)
-				.forEach(edge -> {
-					double range = currentRange + edge.weight;
-					Vector2d destination = edge.getDestination();
-					if (range <= effectRange && range < distanceToSourceMap.get(destination)) {
-						distanceToSourceMap.put(destination, range);
-						queue.add(destination);
-					}
-				});
+		while (!heap.isEmpty()) {
+			int source = heap.poll();
+			double currentRange = distances[source];
+			for (int edge = graph.getFirstOutgoingEdge(source); edge < graph.getLastOutgoingEdge(source); edge++) {
+				double range = currentRange + graph.getWeight(edge);
+				int destination = graph.getTarget(edge);
+				if (range <= effectRange && range < distances[destination]) {
+					distances[destination] = range;
+					heap.addOrDecrease(destination, range);
+				}
+			}
 		}
+		distancesToSource = distances;
 	}
 
 	/**
@@ -100,9 +127,10 @@ public class DistanceOfTravelEffectCalculator {
 	 * 	from effect source
 	 */
 	public MArea getEffectArea() {
-		return distanceToSourceMap.entrySet().stream()
-			.filter(entry -> entry.getValue() <= effectRange)
-			.map(entry -> calculateEffectAreaForSource(entry.getKey(), entry.getValue()))
+		CompactGraph graph = visibilityGraph.getVisibilityEdges();
+		return IntStream.range(0, distancesToSource.length)
+			.filter(vertex -> distancesToSource[vertex] <= effectRange)
+			.mapToObj(vertex -> calculateEffectAreaForSource(graph.getVertex(vertex), distancesToSource[vertex]))
 			.reduce(MArea.create(effectSource),
 				(accumulatedArea, visibilityPolygon) -> {
 					MArea sumOfAreas = MArea.create(accumulatedArea);
@@ -28,8 +28,36 @@ public class EffectGeometryGraph extends DirectedGraph<Vector2d> {
 
 	private Area possiblyResizedSource;
 
+	/**
+	 * The grid of the edges for the intersection tests, built when it is first
+	 * needed. It is dropped whenever the graph changes.
+	 */
+	private SegmentGrid segmentGrid;
+
+	/**
+	 * The graph in compressed sparse row form, built when it is first needed.
+	 * It is dropped whenever the graph changes.
+	 */
+	private CompactGraph compactGraph;
+
 	private static final int SOURCE_SAMPLING_ACCURACY = 9;
 
+	/**
+	 * Creates the graph of the polygons and holes of an area without an effect
+	 * source. The polygons are the same as in the graph of the area with any
+	 * effect source.
+	 *
+	 * @param area the area
+	 * @return the graph of the area
+	 */
+	static EffectGeometryGraph fromArea(Area area) {
+		EffectGeometryGraph graph = new EffectGeometryGraph();
+		MArea areaCopy = MArea.create(area);
+		Stream.concat(areaCopy.getPolygons().stream(),
+			areaCopy.getHoles().stream()).forEach(graph::addPolygon);
+		return graph;
+	}
+
 	static EffectGeometryGraph fromAreaAndSource(Area area, Area source) {
 		EffectGeometryGraph graph = new EffectGeometryGraph();
 		MArea areaCopyWithSource = MArea.create(area);
@@ -145,6 +173,67 @@ public class EffectGeometryGraph extends DirectedGraph<Vector2d> {
 		}
 	}
 
+	/**
+	 * Adds a vertex to the graph and drops the grid and the compact graph
+	 * built from the previous vertices.
+	 */
+	@Override
+	void addVertex(Vector2d payload) {
+		super.addVertex(payload);
+		dropDerivedGraphs();
+	}
+
+	/**
+	 * Adds an edge to the graph and drops the grid and the compact graph
+	 * built from the previous edges. The other ways of adding edges and
+	 * graphs come through this method.
+	 */
+	@Override
+	void addEdge(Vector2d source, Vector2d destination, double weight) {
+		super.addEdge(source, destination, weight);
+		dropDerivedGraphs();
+	}
+
+	private synchronized void dropDerivedGraphs() {
+		segmentGrid = null;
+		compactGraph = null;
+	}
+
+	/**
+	 * Returns the grid of the edges of the graph. The grid is built once and
+	 * shared by all the intersection tests against the graph.
+	 *
+	 * @return the grid of the edges
+	 */
+	synchronized SegmentGrid getSegmentGrid() {
+		if (segmentGrid == null) {
+			segmentGrid = SegmentGrid.of(this);
+		}
+		return segmentGrid;
+	}
+
+	/**
+	 * Returns the graph in compressed sparse row form. The compact graph is
+	 * built once, and the visibility graph numbers its vertices the same way.
+	 *
+	 * @return the compact graph
+	 */
+	synchronized CompactGraph getCompactGraph() {
+		if (compactGraph == null) {
+			compactGraph = CompactGraph.of(this);
+		}
+		return compactGraph;
+	}
+
+	/**
+	 * Checks for an edge in the compact graph, so that no objects are created
+	 * for the probe.
+	 */
+	@Override
+	boolean hasEdge(Vector2d source, Vector2d destination) {
+		return getCompactGraph().hasEdge(source, destination);
+	}
+
 	/**
 	 * Return the source vertices in an unmodifiable collection.
 	 *
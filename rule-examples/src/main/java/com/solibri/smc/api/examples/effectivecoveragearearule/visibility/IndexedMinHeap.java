@@ -0,0 +1,114 @@
+package com.solibri.smc.api.examples.effectivecoveragearearule.visibility;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of vertex numbers ordered by a key of each vertex. The
+ * heap knows the position of each vertex in it, so the key of a vertex can be
+ * lowered in place instead of adding the vertex again.
+ */
+final class IndexedMinHeap {
+
+	private final int[] heap;
+
+	/**
+	 * The position of each vertex in the heap, or -1 if it is not in it.
+	 */
+	private final int[] positions;
+
+	private final double[] keys;
+
+	private int size;
+
+	/**
+	 * Creates an empty heap for the vertices from zero up to the given count.
+	 *
+	 * @param vertexCount the number of vertices
+	 */
+	IndexedMinHeap(int vertexCount) {
+		heap = new int[vertexCount];
+		positions = new int[vertexCount];
+		keys = new double[vertexCount];
+		Arrays.fill(positions, -1);
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Adds a vertex to the heap, or lowers its key if it is already in the
+	 * heap with a higher key.
+	 *
+	 * @param vertex the vertex
+	 * @param key the key of the vertex
+	 */
+	void addOrDecrease(int vertex, double key) {
+		int position = positions[vertex];
+		if (position < 0) {
+			position = size++;
+			heap[position] = vertex;
+			positions[vertex] = position;
+		} else if (key >= keys[vertex]) {
+			return;
+		}
+		keys[vertex] = key;
+		siftUp(position);
+	}
+
+	/**
+	 * Removes the vertex with the lowest key from the heap.
+	 *
+	 * @return the vertex
+	 */
+	int poll() {
+		int vertex = heap[0];
+		positions[vertex] = -1;
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			positions[heap[0]] = 0;
+			siftDown(0);
+		}
+		return vertex;
+	}
+
+	private void siftUp(int position) {
+		int vertex = heap[position];
+		double key = keys[vertex];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (keys[heap[parent]] <= key) {
+				break;
+			}
+			move(heap[parent], position);
+			position = parent;
+		}
+		move(vertex, position);
+	}
+
+	private void siftDown(int position) {
+		int vertex = heap[position];
+		double key = keys[vertex];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+				child++;
+			}
+			if (keys[heap[child]] >= key) {
+				break;
+			}
+			move(heap[child], position);
+			position = child;
+		}
+		move(vertex, position);
+	}
+
+	private void move(int vertex, int position) {
+		heap[position] = vertex;
+		positions[vertex] = position;
+	}
+}
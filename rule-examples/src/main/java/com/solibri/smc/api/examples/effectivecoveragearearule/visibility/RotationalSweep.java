@@ -0,0 +1,464 @@
+package com.solibri.smc.api.examples.effectivecoveragearearule.visibility;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Finds the vertices visible from a vertex with the rotational sweep of Lee. A
+ * ray from the vertex is rotated around it, and the edges crossing the ray are
+ * kept in a heap ordered by their distance along the ray. Each other vertex is
+ * visible if the nearest edge crossing the ray is further away than the
+ * vertex, so the visibility of all the vertices is found in one sweep instead
+ * of testing every edge for every vertex.
+ *
+ * Edges that do not cross each other keep their order along the ray while
+ * they both cross it, so the heap stays valid as the ray rotates. Each edge is
+ * added to and removed from the heap at most once, and the heap knows the
+ * position of each edge, so a sweep around one vertex takes O((V + E) log V)
+ * time.
+ *
+ * The edges must not cross each other, which holds for the edges of the
+ * polygons and holes of an area. They may touch and overlap, and in those
+ * degenerate cases, such as vertices on the same ray or on another edge, the
+ * visibility is given by an exact test instead.
+ */
+final class RotationalSweep {
+
+	/**
+	 * The tolerance of the distance comparisons relative to the distances.
+	 */
+	private static final double RELATIVE_EPSILON = 1e-9;
+
+	private final double[] xs;
+
+	private final double[] ys;
+
+	private final int[] edgeStarts;
+
+	private final int[] edgeEnds;
+
+	/**
+	 * The edges connected to each vertex.
+	 */
+	private final int[][] vertexEdges;
+
+	/**
+	 * The edges crossing the current ray as a binary min-heap, so that the
+	 * nearest edge is the first one.
+	 */
+	private final int[] openEdges;
+
+	/**
+	 * The position of each edge in the open edges, or -1 if the edge does not
+	 * cross the current ray.
+	 */
+	private final int[] openEdgePositions;
+
+	private int openEdgeCount;
+
+	/**
+	 * The vertices other than the source, sorted by their angle around it.
+	 */
+	private final int[] sortedVertices;
+
+	private final int[] sortBuffer;
+
+	private final double[] angles;
+
+	private final double[] distances;
+
+	private double sourceX;
+
+	private double sourceY;
+
+	private double rayX;
+
+	private double rayY;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param xs the x coordinates of the vertices
+	 * @param ys the y coordinates of the vertices
+	 * @param edgeStarts the indices of the start vertices of the edges
+	 * @param edgeEnds the indices of the end vertices of the edges
+	 */
+	RotationalSweep(double[] xs, double[] ys, int[] edgeStarts, int[] edgeEnds) {
+		this.xs = xs;
+		this.ys = ys;
+		this.edgeStarts = edgeStarts;
+		this.edgeEnds = edgeEnds;
+		this.openEdges = new int[edgeStarts.length];
+		this.openEdgePositions = new int[edgeStarts.length];
+		Arrays.fill(openEdgePositions, -1);
+		this.sortedVertices = new int[Math.max(0, xs.length - 1)];
+		this.sortBuffer = new int[sortedVertices.length];
+		this.angles = new double[xs.length];
+		this.distances = new double[xs.length];
+
+		int[] edgeCounts = new int[xs.length];
+		for (int edge = 0; edge < edgeStarts.length; edge++) {
+			edgeCounts[edgeStarts[edge]]++;
+			edgeCounts[edgeEnds[edge]]++;
+		}
+		vertexEdges = new int[xs.length][];
+		for (int vertex = 0; vertex < xs.length; vertex++) {
+			vertexEdges[vertex] = new int[edgeCounts[vertex]];
+			edgeCounts[vertex] = 0;
+		}
+		for (int edge = 0; edge < edgeStarts.length; edge++) {
+			vertexEdges[edgeStarts[edge]][edgeCounts[edgeStarts[edge]]++] = edge;
+			vertexEdges[edgeEnds[edge]][edgeCounts[edgeEnds[edge]]++] = edge;
+		}
+	}
+
+	/**
+	 * Creates a sweep over the vertices and edges of the given graph. The
+	 * vertices are referred to by their numbers in the graph.
+	 *
+	 * @param graph the graph
+	 * @return the sweep
+	 */
+	static RotationalSweep of(CompactGraph graph) {
+		double[] xs = new double[graph.getVertexCount()];
+		double[] ys = new double[graph.getVertexCount()];
+		for (int vertex = 0; vertex < xs.length; vertex++) {
+			xs[vertex] = graph.getX(vertex);
+			ys[vertex] = graph.getY(vertex);
+		}
+		int[] edgeStarts = new int[graph.getEdgeCount()];
+		int[] edgeEnds = new int[graph.getEdgeCount()];
+		for (int edge = 0; edge < edgeStarts.length; edge++) {
+			edgeStarts[edge] = graph.getSource(edge);
+			edgeEnds[edge] = graph.getTarget(edge);
+		}
+		return new RotationalSweep(xs, ys, edgeStarts, edgeEnds);
+	}
+
+	/**
+	 * Finds the vertices visible from the given vertex. A vertex is visible if
+	 * the segment between the vertices does not intersect any edge that is
+	 * not connected to either of them.
+	 *
+	 * @param source the index of the vertex
+	 * @param exactVisibility the exact visibility test of a vertex, used in
+	 *            the degenerate cases
+	 * @param visibleVertices receives the indices of the visible vertices
+	 */
+	void findVisibleVertices(int source, IntPredicate exactVisibility, IntConsumer visibleVertices) {
+		sourceX = xs[source];
+		sourceY = ys[source];
+
+		/*
+		 * A vertex lying on an edge touches every segment starting from it, so
+		 * it is left to the exact test.
+		 */
+		if (isOnEdge(source)) {
+			for (int vertex = 0; vertex < xs.length; vertex++) {
+				if (vertex != source && exactVisibility.test(vertex)) {
+					visibleVertices.accept(vertex);
+				}
+			}
+			return;
+		}
+
+		sortByAngle(source);
+
+		/*
+		 * Start with the edges crossing the ray along the positive x-axis. The
+		 * edges with a vertex on the ray are added when the vertex is reached.
+		 */
+		clearOpenEdges();
+		rayX = 1.0;
+		rayY = 0.0;
+		for (int edge = 0; edge < edgeStarts.length; edge++) {
+			if (!isConnected(edge, source) && crossesInitialRay(edge)) {
+				insertOpenEdge(edge);
+			}
+		}
+
+		int previous = -1;
+		for (int vertex : sortedVertices) {
+			rayX = xs[vertex] - sourceX;
+			rayY = ys[vertex] - sourceY;
+			double distance = Math.sqrt(rayX * rayX + rayY * rayY);
+
+			/*
+			 * Remove the edges of the vertex that end on the ray.
+			 */
+			for (int edge : vertexEdges[vertex]) {
+				if (!isConnected(edge, source) && side(otherVertex(edge, vertex)) < 0.0) {
+					removeOpenEdge(edge);
+				}
+			}
+
+			boolean visible;
+			if (distance == 0.0 || previous >= 0 && isOnSameRay(previous, vertex)) {
+				visible = exactVisibility.test(vertex);
+			} else if (openEdgeCount == 0) {
+				visible = true;
+			} else {
+				double nearestDistance = rayDistance(openEdges[0]);
+				if (Double.isNaN(nearestDistance)
+					|| Math.abs(nearestDistance - distance) <= RELATIVE_EPSILON * Math.max(1.0, distance)) {
+					visible = exactVisibility.test(vertex);
+				} else {
+					visible = nearestDistance > distance;
+				}
+			}
+			if (visible) {
+				visibleVertices.accept(vertex);
+			}
+
+			/*
+			 * Add the edges of the vertex that start from the ray.
+			 */
+			for (int edge : vertexEdges[vertex]) {
+				if (!isConnected(edge, source) && side(otherVertex(edge, vertex)) > 0.0) {
+					insertOpenEdge(edge);
+				}
+			}
+			previous = vertex;
+		}
+	}
+
+	/**
+	 * Sorts the vertices other than the source by their angle around the
+	 * source, and the vertices at the same angle by their distance.
+	 */
+	private void sortByAngle(int source) {
+		int count = 0;
+		for (int vertex = 0; vertex < xs.length; vertex++) {
+			if (vertex == source) {
+				continue;
+			}
+			double dx = xs[vertex] - sourceX;
+			double dy = ys[vertex] - sourceY;
+			double angle = Math.atan2(dy, dx);
+			angles[vertex] = angle < 0.0 ? angle + 2.0 * Math.PI : angle;
+			distances[vertex] = dx * dx + dy * dy;
+			sortedVertices[count++] = vertex;
+		}
+		mergeSort(0, count);
+	}
+
+	/**
+	 * Sorts the given range of the sorted vertices by angle and distance.
+	 */
+	private void mergeSort(int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		mergeSort(from, middle);
+		mergeSort(middle, to);
+		if (compareByAngle(sortedVertices[middle - 1], sortedVertices[middle]) <= 0) {
+			return;
+		}
+		System.arraycopy(sortedVertices, from, sortBuffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to || left < middle && compareByAngle(sortBuffer[left], sortBuffer[right]) <= 0) {
+				sortedVertices[i] = sortBuffer[left++];
+			} else {
+				sortedVertices[i] = sortBuffer[right++];
+			}
+		}
+	}
+
+	private int compareByAngle(int first, int second) {
+		int byAngle = Double.compare(angles[first], angles[second]);
+		return byAngle != 0 ? byAngle : Double.compare(distances[first], distances[second]);
+	}
+
+	private boolean isOnEdge(int source) {
+		for (int edge = 0; edge < edgeStarts.length; edge++) {
+			if (isConnected(edge, source)) {
+				continue;
+			}
+			double ax = xs[edgeStarts[edge]] - sourceX;
+			double ay = ys[edgeStarts[edge]] - sourceY;
+			double bx = xs[edgeEnds[edge]] - sourceX;
+			double by = ys[edgeEnds[edge]] - sourceY;
+			double length = Math.hypot(bx - ax, by - ay);
+			double cross = ax * by - ay * bx;
+			if (Math.abs(cross) <= RELATIVE_EPSILON * Math.max(1.0, length) * Math.max(1.0, length)
+				&& ax * bx + ay * by <= RELATIVE_EPSILON * Math.max(1.0, length)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isOnSameRay(int previous, int vertex) {
+		double ax = xs[previous] - sourceX;
+		double ay = ys[previous] - sourceY;
+		double bx = xs[vertex] - sourceX;
+		double by = ys[vertex] - sourceY;
+		double cross = ax * by - ay * bx;
+		return Math.abs(cross) <= RELATIVE_EPSILON * Math.hypot(ax, ay) * Math.hypot(bx, by)
+			&& ax * bx + ay * by > 0.0;
+	}
+
+	private boolean crossesInitialRay(int edge) {
+		double ay = ys[edgeStarts[edge]] - sourceY;
+		double by = ys[edgeEnds[edge]] - sourceY;
+		if (ay > 0.0 == by > 0.0 || ay == 0.0 || by == 0.0) {
+			return false;
+		}
+		double ax = xs[edgeStarts[edge]] - sourceX;
+		double bx = xs[edgeEnds[edge]] - sourceX;
+		return ax + (bx - ax) * ay / (ay - by) > 0.0;
+	}
+
+	private boolean isConnected(int edge, int vertex) {
+		return edgeStarts[edge] == vertex || edgeEnds[edge] == vertex;
+	}
+
+	private int otherVertex(int edge, int vertex) {
+		return edgeStarts[edge] == vertex ? edgeEnds[edge] : edgeStarts[edge];
+	}
+
+	/**
+	 * Returns a positive value if the vertex is counterclockwise from the
+	 * current ray, a negative value if it is clockwise and zero if it is on
+	 * the line of the ray.
+	 */
+	private double side(int vertex) {
+		return rayX * (ys[vertex] - sourceY) - rayY * (xs[vertex] - sourceX);
+	}
+
+	/**
+	 * Returns the distance from the source to the line of the edge along the
+	 * current ray, or NaN if the edge is parallel to the ray.
+	 */
+	private double rayDistance(int edge) {
+		double ax = xs[edgeStarts[edge]] - sourceX;
+		double ay = ys[edgeStarts[edge]] - sourceY;
+		double ex = xs[edgeEnds[edge]] - xs[edgeStarts[edge]];
+		double ey = ys[edgeEnds[edge]] - ys[edgeStarts[edge]];
+		double rayLength = Math.hypot(rayX, rayY);
+		double denominator = (rayX * ey - rayY * ex) / rayLength;
+		if (Math.abs(denominator) <= RELATIVE_EPSILON * Math.hypot(ex, ey)) {
+			return Double.NaN;
+		}
+		return (ax * ey - ay * ex) / denominator;
+	}
+
+	/**
+	 * Compares the distances of two edges along the current ray. Edges
+	 * meeting on the ray are ordered by which of them is nearer when the ray
+	 * is rotated further.
+	 */
+	private int compareOpenEdges(int first, int second) {
+		if (first == second) {
+			return 0;
+		}
+		double firstDistance = rayDistance(first);
+		double secondDistance = rayDistance(second);
+		if (!Double.isNaN(firstDistance) && !Double.isNaN(secondDistance)
+			&& Math.abs(firstDistance - secondDistance) > RELATIVE_EPSILON * Math.max(1.0, firstDistance)) {
+			return Double.compare(firstDistance, secondDistance);
+		}
+		double distance = Double.isNaN(firstDistance) ? secondDistance : firstDistance;
+		if (!Double.isNaN(distance)) {
+			double rayLength = Math.hypot(rayX, rayY);
+			double meetX = sourceX + rayX / rayLength * distance;
+			double meetY = sourceY + rayY / rayLength * distance;
+			int byAngle = Double.compare(angleTowardsSource(first, meetX, meetY),
+				angleTowardsSource(second, meetX, meetY));
+			if (byAngle != 0) {
+				return byAngle;
+			}
+		}
+		return Integer.compare(first, second);
+	}
+
+	/**
+	 * Returns the angle between the direction from the meeting point towards
+	 * the source and the direction towards the counterclockwise end of the
+	 * edge. The smaller the angle, the nearer the edge is after the ray.
+	 */
+	private double angleTowardsSource(int edge, double meetX, double meetY) {
+		int end = side(edgeStarts[edge]) > side(edgeEnds[edge]) ? edgeStarts[edge] : edgeEnds[edge];
+		double ex = xs[end] - meetX;
+		double ey = ys[end] - meetY;
+		double sx = sourceX - meetX;
+		double sy = sourceY - meetY;
+		return Math.atan2(Math.abs(sx * ey - sy * ex), sx * ex + sy * ey);
+	}
+
+	private void clearOpenEdges() {
+		for (int i = 0; i < openEdgeCount; i++) {
+			openEdgePositions[openEdges[i]] = -1;
+		}
+		openEdgeCount = 0;
+	}
+
+	private void insertOpenEdge(int edge) {
+		int position = openEdgeCount++;
+		moveOpenEdge(edge, position);
+		siftUp(position);
+	}
+
+	/**
+	 * Removes an edge from the open edges if it is there. The last edge of the
+	 * heap takes its place and is moved up or down from there.
+	 */
+	private void removeOpenEdge(int edge) {
+		int position = openEdgePositions[edge];
+		if (position < 0) {
+			return;
+		}
+		openEdgePositions[edge] = -1;
+		openEdgeCount--;
+		if (position == openEdgeCount) {
+			return;
+		}
+		int movedEdge = openEdges[openEdgeCount];
+		moveOpenEdge(movedEdge, position);
+		siftUp(position);
+		if (openEdgePositions[movedEdge] == position) {
+			siftDown(position);
+		}
+	}
+
+	private void siftUp(int position) {
+		int edge = openEdges[position];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (compareOpenEdges(openEdges[parent], edge) <= 0) {
+				break;
+			}
+			moveOpenEdge(openEdges[parent], position);
+			position = parent;
+		}
+		moveOpenEdge(edge, position);
+	}
+
+	private void siftDown(int position) {
+		int edge = openEdges[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= openEdgeCount) {
+				break;
+			}
+			if (child + 1 < openEdgeCount && compareOpenEdges(openEdges[child + 1], openEdges[child]) < 0) {
+				child++;
+			}
+			if (compareOpenEdges(openEdges[child], edge) >= 0) {
+				break;
+			}
+			moveOpenEdge(openEdges[child], position);
+			position = child;
+		}
+		moveOpenEdge(edge, position);
+	}
+
+	private void moveOpenEdge(int edge, int position) {
+		openEdges[position] = edge;
+		openEdgePositions[edge] = position;
+	}
+}
@@ -0,0 +1,214 @@
+package com.solibri.smc.api.examples.effectivecoveragearearule.visibility;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntPredicate;
+
+import com.solibri.geometry.linearalgebra.Vector2d;
+import com.solibri.geometry.primitive2d.MSegment2d;
+import com.solibri.geometry.primitive2d.Segment2d;
+
+/**
+ * A uniform grid over the edges of a geometry graph. Each cell lists the edges
+ * passing through it, so the edges that can intersect a segment are found by
+ * walking the cells along the segment instead of going through all the edges.
+ *
+ * The cells of a segment are found row by row from the part of the segment
+ * inside each row. The rows and columns are widened by a small tolerance, so
+ * that a segment touching a cell border is listed in the cells on both sides.
+ */
+final class SegmentGrid {
+
+	/**
+	 * The tolerance of the cell borders relative to the size of the grid.
+	 */
+	private static final double RELATIVE_EPSILON = 1e-9;
+
+	private final Segment2d[] segments;
+
+	private final Vector2d[] starts;
+
+	private final Vector2d[] ends;
+
+	private final double minX;
+
+	private final double minY;
+
+	private final double cellSize;
+
+	private final int columns;
+
+	private final int rows;
+
+	private final double epsilon;
+
+	/**
+	 * The edges of each cell are cellSegments[cellStarts[cell]] up to
+	 * cellSegments[cellStarts[cell + 1]].
+	 */
+	private final int[] cellStarts;
+
+	private final int[] cellSegments;
+
+	private SegmentGrid(Collection<Edge<Vector2d>> edges) {
+		int count = edges.size();
+		segments = new Segment2d[count];
+		starts = new Vector2d[count];
+		ends = new Vector2d[count];
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double lowX = Double.POSITIVE_INFINITY;
+		double lowY = Double.POSITIVE_INFINITY;
+		int i = 0;
+		for (Edge<Vector2d> edge : edges) {
+			starts[i] = edge.getSource();
+			ends[i] = edge.getDestination();
+			segments[i] = MSegment2d.create(starts[i], ends[i]);
+			lowX = Math.min(lowX, Math.min(starts[i].getX(), ends[i].getX()));
+			lowY = Math.min(lowY, Math.min(starts[i].getY(), ends[i].getY()));
+			maxX = Math.max(maxX, Math.max(starts[i].getX(), ends[i].getX()));
+			maxY = Math.max(maxY, Math.max(starts[i].getY(), ends[i].getY()));
+			i++;
+		}
+		if (count == 0) {
+			lowX = 0.0;
+			lowY = 0.0;
+			maxX = 0.0;
+			maxY = 0.0;
+		}
+		minX = lowX;
+		minY = lowY;
+
+		/*
+		 * Aim at about one edge per cell.
+		 */
+		double width = maxX - minX;
+		double height = maxY - minY;
+		double extent = Math.max(width, height);
+		double size = Math.sqrt(width * height / Math.max(count, 1));
+		cellSize = Math.max(size, Math.max(extent / Math.max(count, 1), 1e-6));
+		columns = (int) (width / cellSize) + 1;
+		rows = (int) (height / cellSize) + 1;
+		epsilon = RELATIVE_EPSILON * Math.max(extent, 1.0);
+
+		/*
+		 * Count the edges of each cell, then fill them in.
+		 */
+		int[] counts = new int[columns * rows + 1];
+		for (int segment = 0; segment < count; segment++) {
+			anyCell(starts[segment], ends[segment], cell -> {
+				counts[cell + 1]++;
+				return false;
+			});
+		}
+		for (int cell = 0; cell < columns * rows; cell++) {
+			counts[cell + 1] += counts[cell];
+		}
+		cellStarts = counts;
+		cellSegments = new int[cellStarts[columns * rows]];
+		int[] next = Arrays.copyOf(cellStarts, columns * rows);
+		for (int segment = 0; segment < count; segment++) {
+			int current = segment;
+			anyCell(starts[segment], ends[segment], cell -> {
+				cellSegments[next[cell]++] = current;
+				return false;
+			});
+		}
+	}
+
+	/**
+	 * Creates the grid of the edges of the given graph.
+	 *
+	 * @param graph the graph
+	 * @return the grid of the edges of the graph
+	 */
+	static SegmentGrid of(DirectedGraph<Vector2d> graph) {
+		return new SegmentGrid(graph.getEdges());
+	}
+
+	/**
+	 * Creates the grid of the given edges.
+	 *
+	 * @param edges the edges
+	 * @return the grid of the edges
+	 */
+	static SegmentGrid of(Collection<Edge<Vector2d>> edges) {
+		return new SegmentGrid(edges);
+	}
+
+	/**
+	 * Checks if the segment between the given points intersects an edge that
+	 * is not connected to either point.
+	 *
+	 * @param start the start point of the segment
+	 * @param end the end point of the segment
+	 * @return true if an edge intersects the segment
+	 */
+	boolean intersectsEdge(Vector2d start, Vector2d end) {
+		Segment2d segment = MSegment2d.create(start, end);
+		return anyCell(start, end, cell -> {
+			for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+				int edge = cellSegments[i];
+				/*
+				 * If the edge goes through the start or end point, it doesn't
+				 * cause an intersection
+				 */
+				if (starts[edge].equals(start) || ends[edge].equals(start) || starts[edge].equals(end)
+					|| ends[edge].equals(end)) {
+					continue;
+				}
+				if (segment.intersects(segments[edge])) {
+					return true;
+				}
+			}
+			return false;
+		});
+	}
+
+	/**
+	 * Goes through the cells the segment between the given points passes
+	 * through until the test accepts a cell. The segment is clipped to each
+	 * row, and the cells of the row between the ends of the clipped part are
+	 * visited.
+	 */
+	private boolean anyCell(Vector2d start, Vector2d end, IntPredicate test) {
+		double x1 = start.getX();
+		double y1 = start.getY();
+		double x2 = end.getX();
+		double y2 = end.getY();
+		double lowY = Math.min(y1, y2) - epsilon;
+		double highY = Math.max(y1, y2) + epsilon;
+		int firstRow = row(lowY);
+		int lastRow = row(highY);
+		for (int row = firstRow; row <= lastRow; row++) {
+			double stripLow = Math.max(lowY, minY + row * cellSize - epsilon);
+			double stripHigh = Math.min(highY, minY + (row + 1) * cellSize + epsilon);
+			double xa = x1;
+			double xb = x2;
+			if (y1 != y2) {
+				xa = x1 + (x2 - x1) * clamp((stripLow - y1) / (y2 - y1));
+				xb = x1 + (x2 - x1) * clamp((stripHigh - y1) / (y2 - y1));
+			}
+			int firstColumn = column(Math.min(xa, xb) - epsilon);
+			int lastColumn = column(Math.max(xa, xb) + epsilon);
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				if (test.test(row * columns + column)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private int row(double y) {
+		return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - minY) / cellSize)));
+	}
+
+	private int column(double x) {
+		return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - minX) / cellSize)));
+	}
+
+	private static double clamp(double t) {
+		return Math.max(0.0, Math.min(1.0, t));
+	}
+}
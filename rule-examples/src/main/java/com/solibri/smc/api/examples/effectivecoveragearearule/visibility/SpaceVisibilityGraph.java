@@ -0,0 +1,56 @@
+package com.solibri.smc.api.examples.effectivecoveragearearule.visibility;
+
+import com.solibri.geometry.primitive2d.Area;
+
+/**
+ * The visibility graph of a space without any effect sources in it. The
+ * outline and holes of the space are the same for every effect source in the
+ * space, so the visibility between their vertices is calculated only once.
+ * The visibility graph of each effect source is then built on top of it: the
+ * edges of the space that the source blocks are dropped, and only the edges
+ * from and to the vertices of the source are calculated.
+ *
+ * The graph is calculated when it is first needed, and it can be shared by
+ * several threads.
+ */
+public final class SpaceVisibilityGraph {
+
+	final Area area;
+
+	final EffectGeometryGraph geometryGraph;
+
+	final VisibilityGraph visibilityGraph;
+
+	private SpaceVisibilityGraph(Area area) {
+		this.area = area;
+		this.geometryGraph = EffectGeometryGraph.fromArea(area);
+		this.visibilityGraph = VisibilityGraph.fromGeometry(geometryGraph);
+	}
+
+	/**
+	 * Creates the visibility graph of the given space area.
+	 *
+	 * @param area the footprint area of the space
+	 * @return the visibility graph of the space
+	 */
+	public static SpaceVisibilityGraph fromArea(Area area) {
+		return new SpaceVisibilityGraph(area);
+	}
+
+	/**
+	 * Returns the footprint area of the space.
+	 *
+	 * @return the area
+	 */
+	public Area getArea() {
+		return area;
+	}
+
+	CompactGraph getGeometry() {
+		return geometryGraph.getCompactGraph();
+	}
+
+	CompactGraph getVisibilityEdges() {
+		return visibilityGraph.getVisibilityEdges();
+	}
+}
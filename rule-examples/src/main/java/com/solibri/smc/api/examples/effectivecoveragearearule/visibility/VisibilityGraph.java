@@ -1,50 +1,285 @@
 package com.solibri.smc.api.examples.effectivecoveragearearule.visibility;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Optional;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntConsumer;
 
 import com.solibri.geometry.linearalgebra.MVector2d;
 import com.solibri.geometry.linearalgebra.Vector2d;
-import com.solibri.geometry.primitive2d.MSegment2d;
-import com.solibri.geometry.primitive2d.Segment2d;
 
 /**
  * The visibility graph takes a geometry graph as an argument. It calculates for
  * each vertex of the geometry graph, what other vertices have a direct line of
  * sight to that vertex. For each such vertex, it assigns an edge between the
  * two vertices.
+ *
+ * The graph can be constructed either by testing every pair of vertices
+ * against every edge of the geometry, or with a rotational sweep around each
+ * vertex. Both give the same edges.
+ *
+ * The graph of an effect source in a space can be built on top of the
+ * visibility graph of the space alone, which is then shared by all the effect
+ * sources in the space.
  */
-class VisibilityGraph extends DirectedGraph<Vector2d> {
+class VisibilityGraph {
+
+	/**
+	 * The ways to construct the visibility graph.
+	 */
+	enum Construction {
+
+		/**
+		 * Tests every pair of vertices against every edge of the geometry,
+		 * which takes O(V^2 * E) time.
+		 */
+		NAIVE,
+
+		/**
+		 * Sweeps a ray around each vertex, which takes O(V (V + E) log V) time,
+		 * that is O(V^2 log V) for the edges of an area.
+		 */
+		ROTATIONAL_SWEEP
+	}
 
 	final EffectGeometryGraph geometryGraph;
 
+	final Construction construction;
+
+	/**
+	 * The visibility graph of the space the geometry is built on, or null if
+	 * the graph is calculated from scratch.
+	 */
+	final SpaceVisibilityGraph space;
+
+	/**
+	 * The edges from each vertex to the vertices visible from it, or null
+	 * before the graph is calculated.
+	 */
+	private CompactGraph visibilityEdges;
+
 	static VisibilityGraph fromGeometry(EffectGeometryGraph geometryGraph) {
-		return new VisibilityGraph(geometryGraph);
+		return new VisibilityGraph(geometryGraph, Construction.ROTATIONAL_SWEEP);
+	}
+
+	static VisibilityGraph fromGeometry(EffectGeometryGraph geometryGraph, Construction construction) {
+		return new VisibilityGraph(geometryGraph, construction, null);
+	}
+
+	/**
+	 * Creates the visibility graph of a geometry that consists of the given
+	 * space and an effect source in it.
+	 *
+	 * @param geometryGraph the geometry of the space and the effect source
+	 * @param space the visibility graph of the space alone
+	 * @return the visibility graph
+	 */
+	static VisibilityGraph fromGeometryOnSpace(EffectGeometryGraph geometryGraph, SpaceVisibilityGraph space) {
+		return new VisibilityGraph(geometryGraph, Construction.ROTATIONAL_SWEEP, space);
 	}
 
 	VisibilityGraph(EffectGeometryGraph geometryGraph) {
-		this.geometryGraph = geometryGraph;
+		this(geometryGraph, Construction.ROTATIONAL_SWEEP);
 	}
 
-	public void calculate() {
-		Collection<Vector2d> verts = geometryGraph.getVertices();
+	VisibilityGraph(EffectGeometryGraph geometryGraph, Construction construction) {
+		this(geometryGraph, construction, null);
+	}
 
-		// Add vertices to the visibility graph
-		verts.forEach(this::addVertex);
+	VisibilityGraph(EffectGeometryGraph geometryGraph, Construction construction, SpaceVisibilityGraph space) {
+		this.geometryGraph = geometryGraph;
+		this.construction = construction;
+		this.space = space;
+	}
 
-		/*
-		 * Brute force implementation, replace with for example Lee's algorithm,
-		 * if necessary
-		 */
-		for (Vector2d src : verts) {
-			for (Vector2d dst : verts) {
-				if (!src.equals(dst) &&
+	/**
+	 * Calculates the visible vertices of each vertex. The graph is calculated
+	 * only once, later calls return right away.
+	 */
+	public synchronized void calculate() {
+		if (visibilityEdges != null) {
+			return;
+		}
+		CompactGraph geometry = geometryGraph.getCompactGraph();
+		CompactGraph.Builder builder = CompactGraph.builderWithVerticesOf(geometry);
+		List<Edge<Vector2d>> edgesOutsideSpace = space != null ? findEdgesOutsideSpace(geometry) : null;
+		if (edgesOutsideSpace != null) {
+			calculateOnSpace(geometry, builder, edgesOutsideSpace);
+		} else if (construction == Construction.ROTATIONAL_SWEEP) {
+			calculateWithRotationalSweep(geometry, builder);
+		} else {
+			calculateNaively(geometry, builder);
+		}
+		visibilityEdges = builder.build();
+	}
+
+	/**
+	 * Brute force implementation, which tests every pair of vertices against
+	 * every edge of the geometry.
+	 */
+	private void calculateNaively(CompactGraph geometry, CompactGraph.Builder builder) {
+		for (int i = 0; i < geometry.getVertexCount(); i++) {
+			for (int j = 0; j < geometry.getVertexCount(); j++) {
+				Vector2d src = geometry.getVertex(i);
+				Vector2d dst = geometry.getVertex(j);
+				if (i != j &&
 					isValidDirectionFromVertex(src, dst) &&
 					isVisibleFromVertex(src, dst)) {
-					addEdge(src, dst, src.distance(dst));
+					builder.addEdge(i, j, src.distance(dst));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the visible vertices of each vertex with a rotational sweep around
+	 * it. The degenerate cases of the sweep, such as vertices on the same ray,
+	 * are decided with the same intersection test as the brute force
+	 * implementation, so the edges are the same.
+	 */
+	private void calculateWithRotationalSweep(CompactGraph geometry, CompactGraph.Builder builder) {
+		RotationalSweep sweep = RotationalSweep.of(geometry);
+		for (int i = 0; i < geometry.getVertexCount(); i++) {
+			int srcId = i;
+			Vector2d src = geometry.getVertex(i);
+			sweep.findVisibleVertices(i, j -> isVisibleFromVertex(src, geometry.getVertex(j)), j -> {
+				Vector2d dst = geometry.getVertex(j);
+				if (isValidDirectionFromVertex(src, dst)) {
+					builder.addEdge(srcId, j, src.distance(dst));
 				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the edges of the geometry that are not edges of the space, if
+	 * they do not touch the space. The vertices of the space then have the
+	 * same edges as in the space alone, so the visibility between them is
+	 * the same except where the other edges block it.
+	 *
+	 * @return the edges outside the space, or null if some of them touch the
+	 *         space
+	 */
+	private List<Edge<Vector2d>> findEdgesOutsideSpace(CompactGraph geometry) {
+		CompactGraph spaceGeometry = space.getGeometry();
+		for (int i = 0; i < spaceGeometry.getVertexCount(); i++) {
+			if (geometry.getId(spaceGeometry.getVertex(i)) < 0) {
+				return null;
+			}
+		}
+
+		List<Edge<Vector2d>> edgesOutsideSpace = new ArrayList<>();
+		int spaceEdgeCount = 0;
+		for (Edge<Vector2d> edge : geometryGraph.getEdges()) {
+			boolean fromSpace = spaceGeometry.getId(edge.getSource()) >= 0;
+			boolean toSpace = spaceGeometry.getId(edge.getDestination()) >= 0;
+			if (fromSpace != toSpace) {
+				return null;
+			}
+			if (fromSpace) {
+				if (!spaceGeometry.hasEdge(edge.getSource(), edge.getDestination())) {
+					return null;
+				}
+				spaceEdgeCount++;
+			} else {
+				edgesOutsideSpace.add(edge);
 			}
 		}
+		return spaceEdgeCount == spaceGeometry.getEdgeCount() ? edgesOutsideSpace : null;
+	}
+
+	/**
+	 * Builds the graph on top of the visibility graph of the space. The edges
+	 * between the vertices of the space are kept unless the edges outside the
+	 * space block them, and the visibility is calculated only for the other
+	 * vertices. The visibility between two vertices is the same both ways, so
+	 * the edges to the other vertices are found from the other vertices.
+	 */
+	private void calculateOnSpace(CompactGraph geometry, CompactGraph.Builder builder,
+		List<Edge<Vector2d>> edgesOutsideSpace) {
+		CompactGraph spaceGeometry = space.getGeometry();
+		CompactGraph spaceEdges = space.getVisibilityEdges();
+		SegmentGrid outsideGrid = SegmentGrid.of(edgesOutsideSpace);
+		boolean[] inSpace = new boolean[geometry.getVertexCount()];
+		for (int i = 0; i < spaceGeometry.getVertexCount(); i++) {
+			Vector2d src = spaceGeometry.getVertex(i);
+			int srcId = geometry.getId(src);
+			inSpace[srcId] = true;
+			for (int edge = spaceEdges.getFirstOutgoingEdge(i); edge < spaceEdges.getLastOutgoingEdge(i); edge++) {
+				Vector2d dst = spaceGeometry.getVertex(spaceEdges.getTarget(edge));
+				if (!outsideGrid.intersectsEdge(src, dst)) {
+					builder.addEdge(srcId, geometry.getId(dst), spaceEdges.getWeight(edge));
+				}
+			}
+		}
+
+		RotationalSweep sweep = construction == Construction.ROTATIONAL_SWEEP ? RotationalSweep.of(geometry) : null;
+		for (int i = 0; i < geometry.getVertexCount(); i++) {
+			if (inSpace[i]) {
+				continue;
+			}
+			int srcId = i;
+			Vector2d src = geometry.getVertex(i);
+			IntConsumer addEdges = j -> {
+				Vector2d dst = geometry.getVertex(j);
+				if (isValidDirectionFromVertex(src, dst)) {
+					builder.addEdge(srcId, j, src.distance(dst));
+				}
+				if (inSpace[j] && isValidDirectionFromVertex(dst, src)) {
+					builder.addEdge(j, srcId, dst.distance(src));
+				}
+			};
+			if (sweep != null) {
+				sweep.findVisibleVertices(i, j -> isVisibleFromVertex(src, geometry.getVertex(j)), addEdges);
+			} else {
+				for (int j = 0; j < geometry.getVertexCount(); j++) {
+					if (i != j && isVisibleFromVertex(src, geometry.getVertex(j))) {
+						addEdges.accept(j);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the vertices of the graph. The vertices are numbered in this
+	 * order.
+	 *
+	 * @return the vertices
+	 */
+	Collection<Vector2d> getVertices() {
+		return geometryGraph.getCompactGraph().getVertices();
+	}
+
+	/**
+	 * Returns the calculated graph in compressed sparse row form. The weight
+	 * of an edge is the distance between its vertices.
+	 *
+	 * @return the visibility edges
+	 */
+	CompactGraph getVisibilityEdges() {
+		calculate();
+		return visibilityEdges;
+	}
+
+	/**
+	 * Returns the vertices visible from the given vertex.
+	 *
+	 * @param src the vertex
+	 * @return the visible vertices
+	 */
+	List<Vector2d> getVisibleVertices(Vector2d src) {
+		CompactGraph graph = getVisibilityEdges();
+		int srcId = graph.getId(src);
+		if (srcId < 0) {
+			return Collections.emptyList();
+		}
+		List<Vector2d> vertices = new ArrayList<>(graph.getLastOutgoingEdge(srcId) - graph.getFirstOutgoingEdge(srcId));
+		for (int edge = graph.getFirstOutgoingEdge(srcId); edge < graph.getLastOutgoingEdge(srcId); edge++) {
+			vertices.add(graph.getVertex(graph.getTarget(edge)));
+		}
+		return vertices;
 	}
 
 	/**
@@ -63,16 +298,19 @@ class VisibilityGraph extends DirectedGraph<Vector2d> {
 	 */
 	boolean isValidDirectionFromVertex(Vector2d src, Vector2d dst) {
 
-		Optional<Edge<Vector2d>> srcAsSrc = geometryGraph.getEdgesFromVertex(src).stream().findAny();
-		Optional<Edge<Vector2d>> srcAsDst = geometryGraph.getEdgesToVertex(src).stream().findAny();
-		if (srcAsSrc.isPresent() && srcAsDst.isPresent()) {
+		CompactGraph geometry = geometryGraph.getCompactGraph();
+		int srcId = geometry.getId(src);
+		if (srcId >= 0 && geometry.getFirstOutgoingEdge(srcId) < geometry.getLastOutgoingEdge(srcId)
+			&& geometry.getFirstIncomingEdge(srcId) < geometry.getLastIncomingEdge(srcId)) {
 			/*
 			 * Calculate the clockwise angle from x-axis for the source edge
 			 * vector and destination edge vector and rotate the angles so that
 			 * srcVec is aligned with x-axis
 			 */
-			MVector2d srcVec = srcAsSrc.get().getDestination().subtract(srcAsSrc.get().getSource());
-			MVector2d dstVec = srcAsDst.get().getSource().subtract(srcAsDst.get().getDestination());
+			int srcAsSrc = geometry.getFirstOutgoingEdge(srcId);
+			int srcAsDst = geometry.getIncomingEdge(geometry.getFirstIncomingEdge(srcId));
+			MVector2d srcVec = geometry.getVertex(geometry.getTarget(srcAsSrc)).subtract(src);
+			MVector2d dstVec = geometry.getVertex(geometry.getSource(srcAsDst)).subtract(src);
 			MVector2d dir = dst.subtract(src);
 
 			double srcAngle = srcVec.getClockwiseAngle();
@@ -96,25 +334,12 @@ class VisibilityGraph extends DirectedGraph<Vector2d> {
 	}
 
 	/**
-	 * Loop over the edges in the geometry graph and check, if the line between
-	 * source and destination intersects any of them.
+	 * Check, if the line between source and destination intersects any of the
+	 * edges in the geometry graph. Only the edges in the grid cells along the
+	 * line are tested. If an edge goes through the source or destination, it
+	 * doesn't cause an intersection.
 	 */
 	boolean isVisibleFromVertex(Vector2d src, Vector2d dst) {
-		Segment2d srcToDestSegment = MSegment2d.create(src, dst);
-		return !geometryGraph.getEdges().stream()
-			.filter(e -> {
-				/*
-				 * If the ray goes through the source or destination, it doesn't
-				 * cause an intersection
-				 */
-				if (e.getSource().equals(src) || e.getDestination().equals(src) || e.getSource().equals(dst) || e
-					.getDestination().equals(dst)) {
-					return false;
-				}
-				Segment2d edgeSegment = MSegment2d.create(e.getSource(), e.getDestination());
-				return srcToDestSegment.intersects(edgeSegment);
-			})
-			.findAny()
-			.isPresent();
+		return !geometryGraph.getSegmentGrid().intersectsEdge(src, dst);
 	}
 }
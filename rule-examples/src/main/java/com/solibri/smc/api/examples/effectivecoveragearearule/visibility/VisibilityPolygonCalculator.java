@@ -117,8 +117,7 @@ public class VisibilityPolygonCalculator {
 		 * the rays according to clockwise angle to x-axis. Add the first
 		 * location as the last location for the while-loop to close.
 		 */
-		List<Vector2d> rayDestinations = visibilityGraph.getEdgesFromVertex(src).stream()
-			.map(e -> e.getDestination())
+		List<Vector2d> rayDestinations = visibilityGraph.getVisibleVertices(src).stream()
 			.sorted((dst1, dst2) -> {
 				MVector2d dir1 = MVector2d.create(dst1);
 				dir1.subtractInPlace(src);
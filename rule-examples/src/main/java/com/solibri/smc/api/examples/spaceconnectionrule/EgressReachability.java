@@ -0,0 +1,201 @@
+package com.solibri.smc.api.examples.spaceconnectionrule;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import com.solibri.geometry.primitive3d.AABB3d;
+import com.solibri.smc.api.model.Component;
+import com.solibri.smc.api.model.components.Space;
+
+/**
+ * This class finds how far the outside of the building is from every space.
+ * The search starts from all the spaces with a door or an opening to outside
+ * at the same time and spreads through the doors and openings to the
+ * connected spaces, so one search gives the result for every space of the
+ * building.
+ *
+ * The number of doors and openings passed on the way out is found with a
+ * breadth-first search, and the walking distance with Dijkstra's algorithm.
+ * The walking distance goes from the center of a space through the centers of
+ * the doors and openings, so it is an estimate of the real walking distance.
+ */
+final class EgressReachability {
+
+	/**
+	 * The number of transitions of a space from where the outside can not be
+	 * reached.
+	 */
+	static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private final SpaceConnectionGraph spaceConnections;
+
+	private final int[] transitions;
+
+	private final double[] distances;
+
+	private EgressReachability(SpaceConnectionGraph spaceConnections, int[] transitions, double[] distances) {
+		this.spaceConnections = spaceConnections;
+		this.transitions = transitions;
+		this.distances = distances;
+	}
+
+	/**
+	 * Finds the reachability of the outside for all the spaces of the graph.
+	 *
+	 * @param spaceConnections the connections between the spaces
+	 * @param outsideConnections the doors and openings leading outside
+	 *
+	 * @return the reachability of the outside
+	 */
+	static EgressReachability of(SpaceConnectionGraph spaceConnections,
+		OutsideConnectionIndex outsideConnections) {
+		int spaceCount = spaceConnections.getSpaceCount();
+		double[][] spaceCenters = new double[spaceCount][];
+		for (int space = 0; space < spaceCount; space++) {
+			spaceCenters[space] = center(spaceConnections.getSpace(space));
+		}
+
+		/*
+		 * Collect the spaces with an exit and the passages between the spaces.
+		 * The passages are stored as an array of the passages of each space
+		 * after each other, with the offset of the first passage of each space.
+		 */
+		int[] transitions = new int[spaceCount];
+		double[] distances = new double[spaceCount];
+		Arrays.fill(transitions, UNREACHABLE);
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+		int[] offsets = new int[spaceCount + 1];
+		for (Component connection : spaceConnections.getConnections()) {
+			int[] connectedSpaces = spaceConnections.getConnectedSpaceIds(connection);
+			for (int space : connectedSpaces) {
+				offsets[space + 1] += connectedSpaces.length - 1;
+			}
+		}
+		for (int space = 0; space < spaceCount; space++) {
+			offsets[space + 1] += offsets[space];
+		}
+		int[] passageTargets = new int[offsets[spaceCount]];
+		double[] passageLengths = new double[offsets[spaceCount]];
+		int[] passageCounts = new int[spaceCount];
+
+		for (Component connection : spaceConnections.getConnections()) {
+			int[] connectedSpaces = spaceConnections.getConnectedSpaceIds(connection);
+			double[] connectionCenter = center(connection);
+			boolean leadsOutside = outsideConnections.get(connection).leadsOutside;
+			for (int space : connectedSpaces) {
+				double toConnection = distance(spaceCenters[space], connectionCenter);
+				if (leadsOutside) {
+					transitions[space] = 1;
+					distances[space] = Math.min(distances[space], toConnection);
+				}
+				for (int otherSpace : connectedSpaces) {
+					if (otherSpace != space) {
+						int passage = offsets[space] + passageCounts[space]++;
+						passageTargets[passage] = otherSpace;
+						passageLengths[passage] = toConnection + distance(connectionCenter, spaceCenters[otherSpace]);
+					}
+				}
+			}
+		}
+
+		findTransitions(transitions, offsets, passageTargets);
+		findDistances(distances, offsets, passageTargets, passageLengths);
+		return new EgressReachability(spaceConnections, transitions, distances);
+	}
+
+	/**
+	 * Returns the smallest number of doors and openings passed on the way
+	 * from the given space to outside, or {@link #UNREACHABLE} if the outside
+	 * can not be reached.
+	 *
+	 * @param space the space
+	 *
+	 * @return the number of transitions
+	 */
+	int getTransitions(Space space) {
+		int id = spaceConnections.getId(space);
+		return id >= 0 ? transitions[id] : UNREACHABLE;
+	}
+
+	/**
+	 * Returns the shortest walking distance from the given space to outside,
+	 * or infinity if the outside can not be reached.
+	 *
+	 * @param space the space
+	 *
+	 * @return the walking distance
+	 */
+	double getDistance(Space space) {
+		int id = spaceConnections.getId(space);
+		return id >= 0 ? distances[id] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Breadth-first search from all the spaces with an exit.
+	 */
+	private static void findTransitions(int[] transitions, int[] offsets, int[] passageTargets) {
+		int[] queue = new int[transitions.length];
+		int head = 0;
+		int tail = 0;
+		for (int space = 0; space < transitions.length; space++) {
+			if (transitions[space] != UNREACHABLE) {
+				queue[tail++] = space;
+			}
+		}
+		while (head < tail) {
+			int space = queue[head++];
+			for (int passage = offsets[space]; passage < offsets[space + 1]; passage++) {
+				int target = passageTargets[passage];
+				if (transitions[target] == UNREACHABLE) {
+					transitions[target] = transitions[space] + 1;
+					queue[tail++] = target;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dijkstra's algorithm from all the spaces with an exit. The queue may
+	 * hold old entries of a space, which are skipped.
+	 */
+	private static void findDistances(double[] distances, int[] offsets, int[] passageTargets,
+		double[] passageLengths) {
+		PriorityQueue<double[]> queue = new PriorityQueue<>(Comparator.comparingDouble(entry -> entry[0]));
+		for (int space = 0; space < distances.length; space++) {
+			if (distances[space] != Double.POSITIVE_INFINITY) {
+				queue.add(new double[] { distances[space], space });
+			}
+		}
+		while (!queue.isEmpty()) {
+			double[] entry = queue.poll();
+			int space = (int) entry[1];
+			if (entry[0] > distances[space]) {
+				continue;
+			}
+			for (int passage = offsets[space]; passage < offsets[space + 1]; passage++) {
+				int target = passageTargets[passage];
+				double distance = entry[0] + passageLengths[passage];
+				if (distance < distances[target]) {
+					distances[target] = distance;
+					queue.add(new double[] { distance, target });
+				}
+			}
+		}
+	}
+
+	private static double[] center(Component component) {
+		AABB3d bounds = component.getBoundingBox();
+		return new double[] {
+			(bounds.getLowerBound().getX() + bounds.getUpperBound().getX()) / 2.0,
+			(bounds.getLowerBound().getY() + bounds.getUpperBound().getY()) / 2.0,
+			(bounds.getLowerBound().getZ() + bounds.getUpperBound().getZ()) / 2.0 };
+	}
+
+	private static double distance(double[] a, double[] b) {
+		double dx = a[0] - b[0];
+		double dy = a[1] - b[1];
+		double dz = a[2] - b[2];
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+}
@@ -0,0 +1,115 @@
+package com.solibri.smc.api.examples.spaceconnectionrule;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.solibri.smc.api.filter.AABBIntersectionFilter;
+import com.solibri.smc.api.filter.ComponentFilter;
+import com.solibri.smc.api.model.Component;
+import com.solibri.smc.api.model.Model;
+import com.solibri.smc.api.model.Property;
+import com.solibri.smc.api.model.PropertySet;
+import com.solibri.smc.api.model.components.Wall;
+
+/**
+ * This class holds for each door and opening whether it leads outside. A door
+ * or an opening leads outside if it is in or next to an external wall.
+ *
+ * Every interior door and opening belongs to two spaces, so the walls close to
+ * them are searched once for the whole checking run instead of once for each
+ * space. The index can be used from several checking threads at the same
+ * time.
+ */
+final class OutsideConnectionIndex {
+
+	private static final double CLOSE_WALLS_CONTRACTION_TOLERANCE_M = -0.05;
+
+	private final Model targetModel;
+
+	private final Map<Component, OutsideConnection> connections = new ConcurrentHashMap<>();
+
+	/**
+	 * The walls close to a door or an opening and whether one of them is an
+	 * external wall.
+	 */
+	static final class OutsideConnection {
+
+		final boolean leadsOutside;
+
+		final Collection<Wall> closeWalls;
+
+		OutsideConnection(boolean leadsOutside, Collection<Wall> closeWalls) {
+			this.leadsOutside = leadsOutside;
+			this.closeWalls = closeWalls;
+		}
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param targetModel the model where the walls are searched from
+	 */
+	OutsideConnectionIndex(Model targetModel) {
+		this.targetModel = targetModel;
+	}
+
+	/**
+	 * Adds the given doors and openings to the index. The doors and openings
+	 * are processed in parallel.
+	 *
+	 * @param doorsAndOpenings the doors and openings
+	 */
+	void addAll(Collection<? extends Component> doorsAndOpenings) {
+		doorsAndOpenings.parallelStream().forEach(this::get);
+	}
+
+	/**
+	 * Returns the outside connection of the given door or opening. If the door
+	 * or opening is not in the index yet, it is added.
+	 *
+	 * @param doorOrOpening the door or opening
+	 *
+	 * @return the outside connection
+	 */
+	OutsideConnection get(Component doorOrOpening) {
+		/*
+		 * The walls are searched outside the map, so that the model query does
+		 * not block the other threads adding doors and openings to the index.
+		 */
+		OutsideConnection connection = connections.get(doorOrOpening);
+		if (connection == null) {
+			connection = findOutsideConnection(doorOrOpening);
+			OutsideConnection previous = connections.putIfAbsent(doorOrOpening, connection);
+			if (previous != null) {
+				connection = previous;
+			}
+		}
+		return connection;
+	}
+
+	private OutsideConnection findOutsideConnection(Component doorOrOpening) {
+		ComponentFilter closeWallsFilter = AABBIntersectionFilter
+			.ofComponentBounds(doorOrOpening, 0.0, CLOSE_WALLS_CONTRACTION_TOLERANCE_M);
+		Collection<Wall> closeWalls = targetModel.getComponents(closeWallsFilter, Wall.class);
+
+		for (Wall wall : closeWalls) {
+			if (isExternal(wall)) {
+				return new OutsideConnection(true, closeWalls);
+			}
+		}
+		return new OutsideConnection(false, closeWalls);
+	}
+
+	private static boolean isExternal(Wall wall) {
+		for (PropertySet propertySet : wall.getPropertySets("Pset_WallCommon")) {
+			Optional<Property<Boolean>> isExternalProperty = propertySet.getProperty("IsExternal");
+			if (isExternalProperty.isPresent() && isExternalProperty.get().getValue().isPresent()
+				&& isExternalProperty.get().getValue().get()) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
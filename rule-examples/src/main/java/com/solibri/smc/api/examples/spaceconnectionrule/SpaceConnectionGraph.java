@@ -0,0 +1,270 @@
+package com.solibri.smc.api.examples.spaceconnectionrule;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.solibri.smc.api.filter.ComponentFilter;
+import com.solibri.smc.api.model.Component;
+import com.solibri.smc.api.model.components.Door;
+import com.solibri.smc.api.model.components.Opening;
+import com.solibri.smc.api.model.components.Space;
+
+/**
+ * This class holds the connections between the spaces of the building. Two
+ * spaces are connected if they share a door or an opening.
+ *
+ * The graph is built once from an index of the spaces of each door and
+ * opening, so finding the spaces connected to a space or the doors and
+ * openings shared by two spaces does not need any geometry queries. The
+ * spaces are numbered densely and sets of spaces are given as bit sets of
+ * the numbers, so that the sets can be combined a word at a time.
+ */
+final class SpaceConnectionGraph {
+
+	private static final int[] NO_SPACES = new int[0];
+
+	private final List<Space> spaces;
+
+	private final Map<Space, Integer> spaceIds;
+
+	/**
+	 * The numbers of the spaces of each door and opening.
+	 */
+	private final Map<Component, int[]> spacesByConnection;
+
+	private final BitSet[] spacesConnectedByDoors;
+
+	private final BitSet[] spacesConnectedByOpenings;
+
+	private SpaceConnectionGraph(List<Space> spaces, Map<Space, Integer> spaceIds,
+		Map<Component, int[]> spacesByConnection, BitSet[] spacesConnectedByDoors,
+		BitSet[] spacesConnectedByOpenings) {
+		this.spaces = spaces;
+		this.spaceIds = spaceIds;
+		this.spacesByConnection = spacesByConnection;
+		this.spacesConnectedByDoors = spacesConnectedByDoors;
+		this.spacesConnectedByOpenings = spacesConnectedByOpenings;
+	}
+
+	/**
+	 * Builds the graph of the given spaces.
+	 *
+	 * @param spaces the spaces
+	 *
+	 * @return the graph of the spaces
+	 */
+	static SpaceConnectionGraph of(Collection<Space> spaces) {
+		List<Space> spaceList = new ArrayList<>(spaces);
+		Map<Space, Integer> spaceIds = new HashMap<>();
+		Map<Component, List<Integer>> spaceListsByConnection = new HashMap<>();
+		for (int id = 0; id < spaceList.size(); id++) {
+			Space space = spaceList.get(id);
+			spaceIds.put(space, id);
+			for (Door door : space.getDoors()) {
+				spaceListsByConnection.computeIfAbsent(door, connection -> new ArrayList<>(2)).add(id);
+			}
+			for (Opening opening : space.getOpenings()) {
+				spaceListsByConnection.computeIfAbsent(opening, connection -> new ArrayList<>(2)).add(id);
+			}
+		}
+
+		BitSet[] spacesConnectedByDoors = new BitSet[spaceList.size()];
+		BitSet[] spacesConnectedByOpenings = new BitSet[spaceList.size()];
+		for (int id = 0; id < spaceList.size(); id++) {
+			spacesConnectedByDoors[id] = new BitSet();
+			spacesConnectedByOpenings[id] = new BitSet();
+		}
+		Map<Component, int[]> spacesByConnection = new HashMap<>();
+		for (Map.Entry<Component, List<Integer>> entry : spaceListsByConnection.entrySet()) {
+			int[] connectedSpaces = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+			spacesByConnection.put(entry.getKey(), connectedSpaces);
+			BitSet[] neighbours = entry.getKey() instanceof Door ? spacesConnectedByDoors : spacesConnectedByOpenings;
+			for (int space : connectedSpaces) {
+				for (int otherSpace : connectedSpaces) {
+					if (otherSpace != space) {
+						neighbours[space].set(otherSpace);
+					}
+				}
+			}
+		}
+		return new SpaceConnectionGraph(spaceList, spaceIds, spacesByConnection, spacesConnectedByDoors,
+			spacesConnectedByOpenings);
+	}
+
+	/**
+	 * Returns the numbers of the spaces that share a door with the given
+	 * space. The returned set can be modified.
+	 *
+	 * @param space the space
+	 *
+	 * @return the numbers of the connected spaces
+	 */
+	BitSet getSpacesConnectedByDoors(Space space) {
+		Integer id = spaceIds.get(space);
+		return id != null ? (BitSet) spacesConnectedByDoors[id].clone() : new BitSet();
+	}
+
+	/**
+	 * Returns the numbers of the spaces that share an opening with the given
+	 * space. The returned set can be modified.
+	 *
+	 * @param space the space
+	 *
+	 * @return the numbers of the connected spaces
+	 */
+	BitSet getSpacesConnectedByOpenings(Space space) {
+		Integer id = spaceIds.get(space);
+		return id != null ? (BitSet) spacesConnectedByOpenings[id].clone() : new BitSet();
+	}
+
+	/**
+	 * Returns the numbers of the given spaces. The spaces that are not in the
+	 * graph are left out.
+	 *
+	 * @param spacesToNumber the spaces
+	 *
+	 * @return the numbers of the spaces
+	 */
+	BitSet getIds(Collection<? extends Space> spacesToNumber) {
+		BitSet ids = new BitSet(spaces.size());
+		for (Space space : spacesToNumber) {
+			Integer id = spaceIds.get(space);
+			if (id != null) {
+				ids.set(id);
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the numbers of the spaces that pass the given filter.
+	 *
+	 * @param filter the filter
+	 *
+	 * @return the numbers of the spaces
+	 */
+	BitSet select(ComponentFilter filter) {
+		BitSet ids = new BitSet(spaces.size());
+		for (int id = 0; id < spaces.size(); id++) {
+			if (filter.accept(spaces.get(id))) {
+				ids.set(id);
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the spaces of the given numbers.
+	 *
+	 * @param ids the numbers of the spaces
+	 *
+	 * @return the spaces
+	 */
+	List<Space> getSpaces(BitSet ids) {
+		List<Space> selectedSpaces = new ArrayList<>(ids.cardinality());
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+			selectedSpaces.add(spaces.get(id));
+		}
+		return selectedSpaces;
+	}
+
+	/**
+	 * Returns the number of the spaces in the graph.
+	 *
+	 * @return the number of the spaces
+	 */
+	int getSpaceCount() {
+		return spaces.size();
+	}
+
+	/**
+	 * Returns the space of the given number.
+	 *
+	 * @param id the number of the space
+	 *
+	 * @return the space
+	 */
+	Space getSpace(int id) {
+		return spaces.get(id);
+	}
+
+	/**
+	 * Returns the number of the given space, or -1 if the space is not in the
+	 * graph.
+	 *
+	 * @param space the space
+	 *
+	 * @return the number of the space
+	 */
+	int getId(Space space) {
+		return spaceIds.getOrDefault(space, -1);
+	}
+
+	/**
+	 * Returns all the doors and openings of the spaces.
+	 *
+	 * @return the doors and openings
+	 */
+	Collection<Component> getConnections() {
+		return Collections.unmodifiableSet(spacesByConnection.keySet());
+	}
+
+	/**
+	 * Returns the numbers of the spaces of the given door or opening.
+	 *
+	 * @param connection the door or opening
+	 *
+	 * @return the numbers of the spaces
+	 */
+	int[] getConnectedSpaceIds(Component connection) {
+		return spacesByConnection.getOrDefault(connection, NO_SPACES).clone();
+	}
+
+	/**
+	 * Returns the doors shared by the two spaces.
+	 *
+	 * @param spaceA the space A
+	 * @param spaceB the space B
+	 *
+	 * @return the common doors
+	 */
+	Set<Component> getCommonDoors(Space spaceA, Space spaceB) {
+		return getCommonConnections(spaceA.getDoors(), spaceB);
+	}
+
+	/**
+	 * Returns the openings shared by the two spaces.
+	 *
+	 * @param spaceA the space A
+	 * @param spaceB the space B
+	 *
+	 * @return the common openings
+	 */
+	Set<Component> getCommonOpenings(Space spaceA, Space spaceB) {
+		return getCommonConnections(spaceA.getOpenings(), spaceB);
+	}
+
+	private Set<Component> getCommonConnections(Collection<? extends Component> connections, Space spaceB) {
+		Set<Component> commonConnections = new HashSet<>();
+		Integer spaceBId = spaceIds.get(spaceB);
+		if (spaceBId == null) {
+			return commonConnections;
+		}
+		for (Component connection : connections) {
+			for (int space : spacesByConnection.getOrDefault(connection, NO_SPACES)) {
+				if (space == spaceBId) {
+					commonConnections.add(connection);
+					break;
+				}
+			}
+		}
+		return commonConnections;
+	}
+}
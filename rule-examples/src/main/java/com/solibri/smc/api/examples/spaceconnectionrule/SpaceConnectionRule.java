@@ -2,15 +2,18 @@ package com.solibri.smc.api.examples.spaceconnectionrule;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import com.solibri.smc.api.checking.ComponentSelector;
 import com.solibri.smc.api.checking.ConcurrentRule;
+import com.solibri.smc.api.checking.DoubleParameter;
 import com.solibri.smc.api.checking.EnumerationParameter;
 import com.solibri.smc.api.checking.FilterParameter;
 import com.solibri.smc.api.checking.PreCheckResult;
@@ -21,6 +24,7 @@ import com.solibri.smc.api.filter.ComponentFilter;
 import com.solibri.smc.api.model.Component;
 import com.solibri.smc.api.model.ComponentType;
 import com.solibri.smc.api.model.Model;
+import com.solibri.smc.api.model.PropertyType;
 import com.solibri.smc.api.model.components.Space;
 import com.solibri.smc.api.ui.UIContainer;
 
@@ -44,6 +48,12 @@ public final class SpaceConnectionRule extends ConcurrentRule {
 
 	static final String EXIT_FORBIDDEN = "rpDirectAccessOutsideCondition.EXIT_FORBIDDEN";
 
+	static final String REACHABILITY_NOT_CHECKED = "rpOutsideReachabilityCondition.NOT_CHECKED";
+
+	static final String REACHABILITY_WITHIN_TRANSITIONS = "rpOutsideReachabilityCondition.WITHIN_TRANSITIONS";
+
+	static final String REACHABILITY_WITHIN_DISTANCE = "rpOutsideReachabilityCondition.WITHIN_DISTANCE";
+
 	private final RuleParameters params = RuleParameters.of(this);
 
 	final FilterParameter rpSpacesFilterA = this.getDefaultFilterParameter();
@@ -76,14 +86,67 @@ public final class SpaceConnectionRule extends ConcurrentRule {
 		.createEnumeration("rpTypeOfAccessOutsideCondition",
 			rpTypeOfAccessConditionParametersList);
 
+	static List<String> rpOutsideReachabilityConditionParametersList = Arrays.asList(
+		REACHABILITY_NOT_CHECKED,
+		REACHABILITY_WITHIN_TRANSITIONS,
+		REACHABILITY_WITHIN_DISTANCE);
+	final EnumerationParameter rpOutsideReachabilityCondition = params
+		.createEnumeration("rpOutsideReachabilityCondition",
+			rpOutsideReachabilityConditionParametersList);
+
+	final DoubleParameter rpMaximumTransitions = params.createDouble("rpMaximumTransitions", PropertyType.INT);
+
+	final DoubleParameter rpMaximumEgressDistance = params.createDouble("rpMaximumEgressDistance",
+		PropertyType.LENGTH);
+
 	private final SpaceConnectionRuleUIDefinition uiDefinition = new SpaceConnectionRuleUIDefinition(this);
 
 	private Model targetModel;
 
+	/**
+	 * The doors and openings of the checked spaces with the information
+	 * whether they lead outside, built in the pre-check.
+	 */
+	private volatile OutsideConnectionIndex outsideConnections;
+
+	/**
+	 * The connections between all the spaces of the model, built in the
+	 * pre-check.
+	 */
+	private volatile SpaceConnectionGraph spaceConnections;
+
+	/**
+	 * The numbers of the spaces of the connection graph that pass the filter
+	 * of the B spaces.
+	 */
+	private volatile BitSet bSpaceIds;
+
+	/**
+	 * The reachability of the outside from all the spaces of the model, found
+	 * in the pre-check if the reachability is checked.
+	 */
+	private volatile EgressReachability egressReachability;
+
 	Model getTargetModel() {
 		return targetModel;
 	}
 
+	OutsideConnectionIndex getOutsideConnections() {
+		return outsideConnections;
+	}
+
+	SpaceConnectionGraph getSpaceConnections() {
+		return spaceConnections;
+	}
+
+	BitSet getBSpaceIds() {
+		return bSpaceIds;
+	}
+
+	EgressReachability getEgressReachability() {
+		return egressReachability;
+	}
+
 	@Override
 	public PreCheckResult preCheck(ComponentSelector components) {
 		targetModel = components.getTargetModel();
@@ -104,6 +167,44 @@ public final class SpaceConnectionRule extends ConcurrentRule {
 				return components.getTargetModel();
 			}
 		};
+
+		/*
+		 * Find out once which doors and openings of the checked spaces lead
+		 * outside. The interior doors and openings are shared by two spaces,
+		 * so this is cheaper than finding it out for each space.
+		 */
+		outsideConnections = new OutsideConnectionIndex(targetModel);
+		Set<Component> doorsAndOpenings = new HashSet<>();
+		for (Component component : delegate.select(rpSpacesFilterA.getValue())) {
+			if (component instanceof Space) {
+				Space space = (Space) component;
+				doorsAndOpenings.addAll(space.getDoors());
+				doorsAndOpenings.addAll(space.getOpenings());
+			}
+		}
+		outsideConnections.addAll(doorsAndOpenings);
+
+		/*
+		 * Build the connections between the spaces from the doors and openings
+		 * of all the spaces of the model, so that the B spaces connected to a
+		 * space A can be looked up without geometry queries.
+		 */
+		spaceConnections = SpaceConnectionGraph.of(targetModel.getComponents(component -> component instanceof Space,
+			Space.class));
+		bSpaceIds = spaceConnections.select(rpSpacesFilterB.getValue());
+
+		/*
+		 * Find the reachability of the outside for all the spaces with one
+		 * search started from every space with an exit, instead of searching
+		 * separately from each space.
+		 */
+		if (!REACHABILITY_NOT_CHECKED.equals(rpOutsideReachabilityCondition.getValue())) {
+			outsideConnections.addAll(spaceConnections.getConnections());
+			egressReachability = EgressReachability.of(spaceConnections, outsideConnections);
+		} else {
+			egressReachability = null;
+		}
+
 		return super.preCheck(delegate);
 	}
 
@@ -118,6 +219,7 @@ public final class SpaceConnectionRule extends ConcurrentRule {
 
 		results.addAll(checkSpaceToSpaceConnection(spaceA, resultFactory));
 		results.addAll(checkSpaceToOutsideAccess(spaceA, resultFactory));
+		results.addAll(checkOutsideReachability(spaceA, resultFactory));
 
 		return results;
 	}
@@ -137,6 +239,11 @@ public final class SpaceConnectionRule extends ConcurrentRule {
 		return spaceToOutsideChecking.checkSpaceToOutsideAccess(entity, resultFactory);
 	}
 
+	private Collection<Result> checkOutsideReachability(Space entity, ResultFactory resultFactory) {
+		SpaceToOutsideChecking spaceToOutsideChecking = new SpaceToOutsideChecking(this);
+		return spaceToOutsideChecking.checkOutsideReachability(entity, resultFactory);
+	}
+
 	@Override
 	public Map<String, String> getParameterTemplateKeyToIdMap() {
 		Map<String, String> parameterTemplateKey = new HashMap<>();
@@ -54,6 +54,15 @@ class SpaceConnectionRuleUIDefinition {
 			.addComponent(UIRadioButtonPanelVertical.create(spaceConnectionRule.rpTypeOfAccessOutsideCondition));
 		checkBoxContainer1.addComponent(checkBoxContainer1_2);
 
+		UIContainer checkBoxContainer1_3 = UIContainerVertical
+			.create(resources.getString("rpOutsideReachabilityCondition.TITLE"),
+				BorderType.LINE);
+		checkBoxContainer1_3
+			.addComponent(UIRadioButtonPanelVertical.create(spaceConnectionRule.rpOutsideReachabilityCondition));
+		checkBoxContainer1_3.addComponent(UIRuleParameter.create(spaceConnectionRule.rpMaximumTransitions));
+		checkBoxContainer1_3.addComponent(UIRuleParameter.create(spaceConnectionRule.rpMaximumEgressDistance));
+		checkBoxContainer1.addComponent(checkBoxContainer1_3);
+
 		UIContainer checkBoxContainer2 = UIContainerVertical
 			.create(resources.getString("UI.SpaceConnectionRequirements.TITLE"),
 				BorderType.LINE);
@@ -4,29 +4,22 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Optional;
 import java.util.Set;
 
 import com.solibri.smc.api.checking.Result;
 import com.solibri.smc.api.checking.ResultFactory;
 import com.solibri.smc.api.checking.RuleResources;
-import com.solibri.smc.api.filter.AABBIntersectionFilter;
-import com.solibri.smc.api.filter.ComponentFilter;
+import com.solibri.smc.api.examples.spaceconnectionrule.OutsideConnectionIndex.OutsideConnection;
 import com.solibri.smc.api.model.Component;
-import com.solibri.smc.api.model.Property;
-import com.solibri.smc.api.model.PropertySet;
 import com.solibri.smc.api.model.components.Door;
 import com.solibri.smc.api.model.components.Opening;
 import com.solibri.smc.api.model.components.Space;
-import com.solibri.smc.api.model.components.Wall;
 
 /**
  * This class is used to check for direct access from Space (A) to outside.
  */
 class SpaceToOutsideChecking {
 
-	private static final double CLOSE_WALLS_CONTRACTION_TOLERANCE_M = -0.05;
-
 	private final SpaceConnectionRule spaceConnectionRule;
 
 	private final Set<Component> externalWalls;
@@ -135,6 +128,62 @@ class SpaceToOutsideChecking {
 		return results;
 	}
 
+	/**
+	 * Checks that the outside can be reached from Space A within the maximum
+	 * number of doors and openings or within the maximum walking distance.
+	 *
+	 * @param spaceA the space A
+	 * @param resultFactory the result factory
+	 *
+	 * @return the checking results
+	 */
+	Collection<Result> checkOutsideReachability(Space spaceA, ResultFactory resultFactory) {
+		EgressReachability egressReachability = spaceConnectionRule.getEgressReachability();
+		if (egressReachability == null) {
+			return Collections.emptyList();
+		}
+
+		String reachabilityCondition = spaceConnectionRule.rpOutsideReachabilityCondition.getValue();
+		if (SpaceConnectionRule.REACHABILITY_WITHIN_TRANSITIONS.equals(reachabilityCondition)) {
+			long maximumTransitions = Math.round(spaceConnectionRule.rpMaximumTransitions.getValue());
+			if (egressReachability.getTransitions(spaceA) > maximumTransitions) {
+				return Collections.singletonList(createOutsideNotReachableResult(spaceA,
+					"OutsideNotReachableWithinTransitions", maximumTransitions, resultFactory));
+			}
+		} else if (SpaceConnectionRule.REACHABILITY_WITHIN_DISTANCE.equals(reachabilityCondition)) {
+			double maximumDistance = spaceConnectionRule.rpMaximumEgressDistance.getValue();
+			if (egressReachability.getDistance(spaceA) > maximumDistance) {
+				return Collections.singletonList(createOutsideNotReachableResult(spaceA,
+					"OutsideNotReachableWithinDistance", maximumDistance, resultFactory));
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Create result when the outside can not be reached from Space A within
+	 * the limit.
+	 *
+	 * @param spaceA the space A
+	 * @param resultTypeInKey the result type in the resource keys
+	 * @param limit the maximum number of transitions or distance
+	 * @param resultFactory the result factory
+	 *
+	 * @return the checking result
+	 */
+	private Result createOutsideNotReachableResult(Space spaceA, String resultTypeInKey, Object limit,
+		ResultFactory resultFactory) {
+
+		String displayName = spaceA.getName();
+		String resultPropertyKey = "Result." + resultTypeInKey;
+
+		String name = resources.getString(resultPropertyKey + ".Name");
+		String description = resources.getString(resultPropertyKey + ".Description", displayName, limit);
+		return resultFactory
+			.create(name, description)
+			.withCustomUniqueKey("createOutsideNotReachableResult" + spaceA.getGUID());
+	}
+
 	private Result createForbiddenTypeOfAccessToOutsideResult(Space spaceA, Component forbiddenTypeOfAccessComponent,
 															  String resultTypeInKey, ResultFactory resultFactory) {
 
@@ -153,25 +202,13 @@ class SpaceToOutsideChecking {
 	}
 
 	private boolean isConnectionToOutside(Component doorOrOpening) {
-		ComponentFilter closeWallsFilter = AABBIntersectionFilter
-			.ofComponentBounds(doorOrOpening, 0.0, CLOSE_WALLS_CONTRACTION_TOLERANCE_M);
-		Collection<Wall> closeWalls = spaceConnectionRule.getTargetModel().getComponents(closeWallsFilter, Wall.class);
+		OutsideConnection connection = spaceConnectionRule.getOutsideConnections().get(doorOrOpening);
 
 		/*
 		 * Add all the walls to a set for the purpose of visualization.
 		 */
-		this.externalWalls.addAll(closeWalls);
-		for (Wall wall : closeWalls) {
-			for (PropertySet propertySet : wall.getPropertySets("Pset_WallCommon")) {
-				Optional<Property<Boolean>> isExternalProperty = propertySet.getProperty("IsExternal");
-				if (isExternalProperty.isPresent() && isExternalProperty.get().getValue().isPresent()
-					&& isExternalProperty.get().getValue().get()) {
-					return true;
-				}
-			}
-		}
-
-		return false;
+		this.externalWalls.addAll(connection.closeWalls);
+		return connection.leadsOutside;
 	}
 
 	/**
@@ -1,12 +1,12 @@
 package com.solibri.smc.api.examples.spaceconnectionrule;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import com.solibri.smc.api.checking.Result;
 import com.solibri.smc.api.checking.ResultFactory;
@@ -14,8 +14,6 @@ import com.solibri.smc.api.checking.RuleResources;
 import com.solibri.smc.api.filter.AABBIntersectionFilter;
 import com.solibri.smc.api.filter.ComponentFilter;
 import com.solibri.smc.api.model.Component;
-import com.solibri.smc.api.model.components.Door;
-import com.solibri.smc.api.model.components.Opening;
 import com.solibri.smc.api.model.components.Space;
 
 /**
@@ -49,77 +47,69 @@ class SpaceToSpaceConnectionChecking {
 	Collection<Result> checkDirectSpaceToSpaceConnection(Space spaceA, ResultFactory resultFactory) {
 		Collection<Result> results = new ArrayList<>();
 
-		Set<Space> bSpaces = findNearBySpaces(spaceA);
-
-		Set<Space> bSpacesWithCommonDoors = getSpacesWithCommonDoors(spaceA, bSpaces);
-		Set<Space> bSpacesWithoutCommonDoors = getSpacesWithoutCommonDoors(spaceA, bSpaces);
-		Set<Space> bSpacesWithCommonOpenings = getSpacesWithCommonOpenings(spaceA, bSpaces);
-		Set<Space> bSpacesWithoutCommonOpenings = getSpacesWithoutCommonOpenings(spaceA, bSpaces);
-		// B spaces without any connection belong to both bSpacesWithoutCommonDoors and bSpacesWithoutCommonOpenings
-		Set<Space> bSpacesWithoutAnyConnection = bSpacesWithoutCommonDoors.stream()
-			.filter(space -> new HashSet<>(bSpacesWithoutCommonOpenings)
-				.contains(space))
-			.collect(Collectors.toSet());
+		/*
+		 * The B spaces sharing a door or an opening with the space A are
+		 * found from the connection graph of the spaces. The sets of the
+		 * spaces are bit sets of the space numbers of the graph.
+		 */
+		SpaceConnectionGraph spaceConnections = spaceConnectionRule.getSpaceConnections();
+		BitSet bSpaceIds = spaceConnectionRule.getBSpaceIds();
+		BitSet bSpacesWithCommonDoors = spaceConnections.getSpacesConnectedByDoors(spaceA);
+		bSpacesWithCommonDoors.and(bSpaceIds);
+		BitSet bSpacesWithCommonOpenings = spaceConnections.getSpacesConnectedByOpenings(spaceA);
+		bSpacesWithCommonOpenings.and(bSpaceIds);
 		// B spaces with any connection belong to either bSpacesWithCommonDoors
 		// or bSpacesWithCommonOpenings
-		Set<Space> bSpacesWithAnyConnection = new HashSet<>();
-		bSpacesWithAnyConnection.addAll(bSpacesWithCommonDoors);
-		bSpacesWithAnyConnection.addAll(bSpacesWithCommonOpenings);
+		BitSet bSpacesWithAnyConnection = (BitSet) bSpacesWithCommonDoors.clone();
+		bSpacesWithAnyConnection.or(bSpacesWithCommonOpenings);
 
 		String typeOfAccessCondition = spaceConnectionRule.rpTypeOfAccessCondition.getValue();
 		String directAccessCondition = spaceConnectionRule.rpDirectAccessCondition.getValue();
 		if (SpaceConnectionRule.DIRECT_ACCESS_REQUIRED.equals(directAccessCondition)) {
+			/*
+			 * Only the required access needs the nearby B spaces that are not
+			 * connected to the space A.
+			 */
+			Set<Space> bSpaces = findNearBySpaces(spaceA);
 			if (bSpaces.isEmpty()) {
 				// If there are no nearby spaces at all, we can directly raise an issue for the space A, without
 				// involving any space B.
 				results.add(createRequiredDirectAccessResult(spaceA, resultFactory));
+				return results;
+			}
 
-			} else if (SpaceConnectionRule.TYPE_ANY_DOOR_OR_OPENING.equals(typeOfAccessCondition)) {
-				for (Space spaceB : bSpacesWithoutAnyConnection) {
-					results.add(createRequiredDirectAccessResult(spaceA, spaceB, resultFactory));
-				}
-
+			BitSet bSpacesWithoutConnection = spaceConnections.getIds(bSpaces);
+			if (SpaceConnectionRule.TYPE_ANY_DOOR_OR_OPENING.equals(typeOfAccessCondition)) {
+				bSpacesWithoutConnection.andNot(bSpacesWithAnyConnection);
 			} else if (SpaceConnectionRule.TYPE_CONSIDER_DOORS.equals(typeOfAccessCondition)) {
-				for (Space spaceB : bSpacesWithoutCommonDoors) {
-					results.add(createRequiredDirectAccessResult(spaceA, spaceB, resultFactory));
-				}
-
+				bSpacesWithoutConnection.andNot(bSpacesWithCommonDoors);
 			} else if (SpaceConnectionRule.TYPE_CONSIDER_OPENINGS.equals(typeOfAccessCondition)) {
-				for (Space spaceB : bSpacesWithoutCommonOpenings) {
-					results.add(createRequiredDirectAccessResult(spaceA, spaceB, resultFactory));
-				}
+				bSpacesWithoutConnection.andNot(bSpacesWithCommonOpenings);
+			} else {
+				bSpacesWithoutConnection.clear();
+			}
+			for (Space spaceB : spaceConnections.getSpaces(bSpacesWithoutConnection)) {
+				results.add(createRequiredDirectAccessResult(spaceA, spaceB, resultFactory));
 			}
 
 		} else if (SpaceConnectionRule.DIRECT_ACCESS_FORBIDDEN.equals(directAccessCondition)) {
 			if (SpaceConnectionRule.TYPE_ANY_DOOR_OR_OPENING.equals(typeOfAccessCondition)) {
-				for (Space spaceB : bSpacesWithAnyConnection) {
+				for (Space spaceB : spaceConnections.getSpaces(bSpacesWithAnyConnection)) {
 					Set<Component> connectingEntities = new HashSet<>();
-					connectingEntities.addAll(
-						spaceB.getDoors().stream().filter(door -> spaceA.getDoors().contains(door))
-							.collect(Collectors.toSet()));
-					connectingEntities
-						.addAll(
-							spaceB.getOpenings().stream().filter(opening -> spaceA.getOpenings().contains(opening))
-								.collect(Collectors.toSet()));
+					connectingEntities.addAll(spaceConnections.getCommonDoors(spaceA, spaceB));
+					connectingEntities.addAll(spaceConnections.getCommonOpenings(spaceA, spaceB));
 					results.add(createForbiddenDirectAccessResult(spaceA, spaceB, connectingEntities, resultFactory));
 				}
 
 			} else if (SpaceConnectionRule.TYPE_CONSIDER_DOORS.equals(typeOfAccessCondition)) {
-				for (Space spaceB : bSpacesWithCommonDoors) {
-					Set<Component> connectingEntities = new HashSet<>();
-					connectingEntities.addAll(
-						spaceB.getDoors().stream().filter(door -> spaceA.getDoors().contains(door))
-							.collect(Collectors.toSet()));
+				for (Space spaceB : spaceConnections.getSpaces(bSpacesWithCommonDoors)) {
+					Set<Component> connectingEntities = spaceConnections.getCommonDoors(spaceA, spaceB);
 					results.add(createForbiddenDirectAccessResult(spaceA, spaceB, connectingEntities, resultFactory));
 				}
 
 			} else if (SpaceConnectionRule.TYPE_CONSIDER_OPENINGS.equals(typeOfAccessCondition)) {
-				for (Space spaceB : bSpacesWithCommonOpenings) {
-					Set<Component> connectingEntities = new HashSet<>();
-					connectingEntities
-						.addAll(
-							spaceB.getOpenings().stream().filter(opening -> spaceA.getOpenings().contains(opening))
-								.collect(Collectors.toSet()));
+				for (Space spaceB : spaceConnections.getSpaces(bSpacesWithCommonOpenings)) {
+					Set<Component> connectingEntities = spaceConnections.getCommonOpenings(spaceA, spaceB);
 					results.add(createForbiddenDirectAccessResult(spaceA, spaceB, connectingEntities, resultFactory));
 				}
 			}
@@ -134,22 +124,16 @@ class SpaceToSpaceConnectionChecking {
 				 * connections, and raise an issue if it does not have also a
 				 * door connection.
 				 */
-				for (Space spaceB : bSpacesWithCommonOpenings) {
-					Set<Component> connectingDoorEntities = spaceB.getDoors().stream()
-						.filter(door -> spaceA.getDoors().contains(door))
-						.collect(Collectors.toSet());
-					if (connectingDoorEntities.isEmpty()) {
-						Set<Component> connectingOpeningEntities =
-							spaceB.getOpenings().stream()
-								.filter(opening -> spaceA.getOpenings().contains(opening))
-								.collect(Collectors.toSet());
-						results.add(
-							createTypeOfDirectAccessResult(
-								spaceA,
-								spaceB,
-								connectingOpeningEntities,
-								resultFactory));
-					}
+				BitSet bSpacesWithoutDoors = (BitSet) bSpacesWithCommonOpenings.clone();
+				bSpacesWithoutDoors.andNot(bSpacesWithCommonDoors);
+				for (Space spaceB : spaceConnections.getSpaces(bSpacesWithoutDoors)) {
+					Set<Component> connectingOpeningEntities = spaceConnections.getCommonOpenings(spaceA, spaceB);
+					results.add(
+						createTypeOfDirectAccessResult(
+							spaceA,
+							spaceB,
+							connectingOpeningEntities,
+							resultFactory));
 				}
 
 			} else if (SpaceConnectionRule.TYPE_CONSIDER_OPENINGS.equals(typeOfAccessCondition)) {
@@ -159,16 +143,10 @@ class SpaceToSpaceConnectionChecking {
 				 * connections, and raise an issue if it does not have also an
 				 * opening connection.
 				 */
-				for (Space spaceB : bSpacesWithCommonOpenings) {
-					Set<Component> connectingOpeningEntities =
-						spaceB.getOpenings().stream()
-							.filter(opening -> spaceA.getOpenings().contains(opening))
-							.collect(Collectors.toSet());
+				for (Space spaceB : spaceConnections.getSpaces(bSpacesWithCommonOpenings)) {
+					Set<Component> connectingOpeningEntities = spaceConnections.getCommonOpenings(spaceA, spaceB);
 					if (connectingOpeningEntities.isEmpty()) {
-						Set<Component> connectingDoorEntities =
-							spaceB.getDoors().stream()
-								.filter(door -> spaceA.getDoors().contains(door))
-								.collect(Collectors.toSet());
+						Set<Component> connectingDoorEntities = spaceConnections.getCommonDoors(spaceA, spaceB);
 						results.add(createTypeOfDirectAccessResult(
 							spaceA,
 							spaceB,
@@ -287,67 +265,4 @@ class SpaceToSpaceConnectionChecking {
 			.withInvolvedComponent(spaceB)
 			.withInvolvedComponents(conflictingEntities);
 	}
-
-	/**
-	 * Fetches all the spaces b that are connected to a with a door.
-	 *
-	 * @param aSpace the space a
-	 * @param bSpaces the spaces b
-	 *
-	 * @return a set of b spaces
-	 */
-	private Set<Space> getSpacesWithCommonDoors(Space aSpace, Collection<Space> bSpaces) {
-		Set<Door> aDoors = new HashSet<>(aSpace.getDoors());
-		return bSpaces.stream()
-			.filter(space -> space.getDoors().stream().anyMatch(door -> aDoors.contains(door)))
-			.collect(Collectors.toSet());
-	}
-
-	/**
-	 * Fetches all the spaces b that are not connected to a with a door.
-	 *
-	 * @param aSpace the space a
-	 * @param bSpaces the spaces b
-	 *
-	 * @return a set of b spaces
-	 */
-	private Set<Space> getSpacesWithoutCommonDoors(Space aSpace, Collection<Space> bSpaces) {
-		Set<Door> aDoors = new HashSet<>(aSpace.getDoors());
-		// Fetches all the spaces b that are not connected to a with a door.
-		return bSpaces.stream()
-			.filter(space -> space.getDoors().stream().noneMatch(door -> aDoors.contains(door)))
-			.collect(Collectors.toSet());
-	}
-
-	/**
-	 * Fetches all the spaces b that are connected to a with an opening.
-	 *
-	 * @param aSpace the space a
-	 * @param bSpaces the spaces b
-	 *
-	 * @return a set of b spaces
-	 */
-	private Set<Space> getSpacesWithCommonOpenings(Space aSpace, Collection<Space> bSpaces) {
-		Set<Opening> aOpenings = new HashSet<>(aSpace.getOpenings());
-		// Fetches all the spaces b that are connected to a with an opening.
-		return bSpaces.stream()
-			.filter(space -> space.getOpenings().stream().anyMatch(opening -> aOpenings.contains(opening)))
-			.collect(Collectors.toSet());
-	}
-
-	/**
-	 * Fetches all the spaces b that are not connected to a with an opening.
-	 *
-	 * @param aSpace the space a
-	 * @param bSpaces the spaces b
-	 *
-	 * @return a set of b spaces
-	 */
-	private Set<Space> getSpacesWithoutCommonOpenings(Space aSpace, Collection<Space> bSpaces) {
-		Set<Opening> aOpenings = new HashSet<>(aSpace.getOpenings());
-		// Fetches all the spaces b that are not connected to a with an opening.
-		return bSpaces.stream()
-			.filter(space -> space.getOpenings().stream().noneMatch(opening -> aOpenings.contains(opening)))
-			.collect(Collectors.toSet());
-	}
 }